@@ -10,6 +10,15 @@ interface Cache {
     fun exists(key: Key): Boolean
     fun get(key: Key): CachedOperation
     fun put(key: Key, operation: Operation<*,*>)
+
+    /**
+     * Looks the key up once, returning the cached operation, or `null` on a miss.
+     */
+    fun lookup(key: Key): CachedOperation? = if (exists(key)) get(key) else null
+
+    /**
+     * Contexts are interned, so the context half of a key compares by identity and hashes from a cached value.
+     */
     data class Key(val term: Term, val context: Context)
 }
 
@@ -25,6 +34,8 @@ object HashMapCache : Cache {
         return cache[key] ?: throw NoSuchElementException("Key not found in cache")
     }
 
+    override fun lookup(key: Cache.Key) = cache[key]
+
     override fun put(key: Cache.Key, operation: Operation<*,*>) {
         cache.put(key, CachedOperation(operation))
     }
@@ -39,6 +50,8 @@ object NoCache : Cache {
         TODO("not implemented")
     }
 
+    override fun lookup(key: Cache.Key): CachedOperation? = null
+
     override fun put(key: Cache.Key, operation: Operation<*, *>) {
 
     }
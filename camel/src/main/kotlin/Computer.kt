@@ -3,6 +3,7 @@ import kotlinx.coroutines.experimental.channels.ReceiveChannel
 import kotlinx.coroutines.experimental.channels.produce
 import kotlinx.coroutines.experimental.runBlocking
 import org.slf4j.LoggerFactory
+import java.lang.ref.WeakReference
 import java.util.*
 import kotlin.streams.asSequence
 import kotlin.system.measureTimeMillis
@@ -12,7 +13,7 @@ import kotlin.system.measureTimeMillis
  * [FunctionEvaluation], with respect to some [Context]. To do this, the client must send an [evaluate] message to the
  * `Computer`.
  *
- * To achieve this reduction, the `Computer` depends on a set of [Operator]s:
+ * To achieve this reduction, the `Computer` depends on a set of [Operator]s, tried in this order at each step:
  *
  * * [CacheRetriever] to obtain any previously evaluated [FunctionApplication][Term.FunctionApplication]
  * * [FunctionSymbolSubstituter] to replace a symbol from the current `FunctionApplication` with another [Term] from
@@ -22,30 +23,25 @@ import kotlin.system.measureTimeMillis
  *
  * @author Ewan
  */
-class Computer(private val cache: Cache) {
+class Computer(private val cache: Cache, createInvokers: (Computer) -> List<FunctionInvoker> = { defaultInvokers(it) }) {
 
     private val log = LoggerFactory.getLogger("Computer")!!
 
+    private val cacheRetriever = CacheRetriever(cache)
+
     /**
-     * The order of these operators is important; the computer tries to apply each operator in turn.
+     * The invokers, indexed by the symbol of the function applications they invoke.
      */
-    private val operators = listOf(
-        CacheRetriever(cache),
-        FunctionSymbolSubstituter,
-        HttpInvoker(CamelHttpClient, this),
-        GroovyScriptInvoker(this, Groovy)
-    )
+    private val invokers: Map<Term.Value.Atom.Symbol, FunctionInvoker> = createInvokers(this).associateBy { it.symbol }
 
     suspend fun evaluate(term: Term.FunctionApplication, context: Context): FunctionEvaluation {
         var currentTerm: Term = term
         var currentContext = context
         val operations = mutableListOf<Operation<*,*>>()
         while (currentTerm !is Term.Value<*>) {
-            val operator = operators
-                .find { it.matches(currentTerm, currentContext) }
-                ?: throw UnresolvableTermException(currentTerm)
-            val operation = operator.operate(currentTerm, currentContext)
-            if (operation !is CachedOperation) cache.put(Cache.Key(currentTerm, currentContext), operation)
+            val key = Cache.Key(currentTerm, currentContext)
+            val operation = cacheRetriever.retrieve(key)
+                ?: operate(currentTerm, currentContext).also { cache.put(key, it) }
             log.info(operation.toString())
             operations.add(operation)
             currentTerm = operation.outputTerm
@@ -56,6 +52,16 @@ class Computer(private val cache: Cache) {
         return result
     }
 
+    private suspend fun operate(term: Term, context: Context): Operation<*,*> {
+        if (term is Term.FunctionApplication) {
+            val replacement = FunctionSymbolSubstituter.replacement(term, context)
+            if (replacement != null) return FunctionSymbolSubstituter.operate(term, context, replacement)
+            val invoker = invokers[term.symbol]
+            if (invoker != null && invoker.matches(term, context)) return invoker.operate(term, context)
+        }
+        throw UnresolvableTermException(term)
+    }
+
     private fun evaluationNotRetrievedFromCache(operations: FunctionEvaluation) =
         (operations.subOps.size == 1 && operations.subOps[0].type == "CACHED").not()
 
@@ -65,6 +71,13 @@ class Computer(private val cache: Cache) {
     fun shutdown() {
         Groovy.shutdown()
     }
+
+    companion object {
+        fun defaultInvokers(computer: Computer): List<FunctionInvoker> = listOf(
+            HttpInvoker(CamelHttpClient, computer),
+            GroovyScriptInvoker(computer, Groovy)
+        )
+    }
 }
 
 /**
@@ -75,10 +88,67 @@ class Computer(private val cache: Cache) {
  * While `Context` objects are immutable, some operations may update the context, therefore the context object output
  * as the result of an operation (and thus input to the next operation) may not be the same and the input context.
  *
- * At the moment, the context object contains only a list of [Substitution]s to be used by the computer. This will be
+ * At the moment, the context object contains only the [Substitution]s to be used by the computer. This will be
  * extended in future to include other state also.
+ *
+ * Contexts are interned, so two contexts making the same substitutions in the same order are the same object.
  */
-data class Context(val substitutions: List<Substitution>)
+class Context private constructor(private val bySymbol: PersistentHashMap<Term.Value.Atom.Symbol, Made>) {
+
+    /**
+     * The term substituted for `symbol`, or `null` if there is none.
+     */
+    operator fun get(symbol: Term.Value.Atom.Symbol): Term? = bySymbol[symbol]?.to
+
+    /**
+     * A context with `substitution` added, replacing any substitution already made for its symbol, in its place.
+     */
+    operator fun plus(substitution: Substitution) = intern(made(bySymbol, substitution))
+
+    /**
+     * The substitutions, in the order they were made.
+     */
+    val substitutions: List<Substitution>
+        get() {
+            val ordered = arrayOfNulls<Substitution>(bySymbol.size)
+            bySymbol.forEach { from, made -> ordered[made.position] = Substitution(from, made.to) }
+            return ordered.map { it!! }
+        }
+
+    override fun equals(other: Any?) = this === other
+
+    override fun hashCode() = bySymbol.hashCode()
+
+    override fun toString() = "Context(substitutions=$substitutions)"
+
+    private data class Made(val to: Term, val position: Int)
+
+    companion object {
+        private val stripes = Array(64) { WeakHashMap<PersistentHashMap<Term.Value.Atom.Symbol, Made>, WeakReference<Context>>() }
+
+        val empty = intern(PersistentHashMap.empty())
+
+        /**
+         * The context making `substitutions`. Where several are given for the same symbol, the first is used.
+         */
+        operator fun invoke(substitutions: List<Substitution>): Context {
+            var bySymbol = PersistentHashMap.empty<Term.Value.Atom.Symbol, Made>()
+            for (substitution in substitutions) if (!bySymbol.containsKey(substitution.from)) bySymbol = made(bySymbol, substitution)
+            return intern(bySymbol)
+        }
+
+        private fun made(bySymbol: PersistentHashMap<Term.Value.Atom.Symbol, Made>, substitution: Substitution) =
+            bySymbol.put(substitution.from, Made(substitution.to, bySymbol[substitution.from]?.position ?: bySymbol.size))
+
+        private fun intern(bySymbol: PersistentHashMap<Term.Value.Atom.Symbol, Made>): Context {
+            val hash = bySymbol.hashCode()
+            val stripe = stripes[(hash xor (hash ushr 16)) and (stripes.size - 1)]
+            return synchronized(stripe) {
+                stripe[bySymbol]?.get() ?: Context(bySymbol).also { stripe[bySymbol] = WeakReference(it) }
+            }
+        }
+    }
+}
 
 /**
  * A mapping from a [Symbol][Term.Value.Atom.Symbol] to some [Term]
@@ -215,6 +285,11 @@ class CacheRetriever(private val cache: Cache) : Operator<Term, Term> {
     override suspend fun operate(term: Term, context: Context): CachedOperation {
         return cache.get(Cache.Key(term, context))
     }
+
+    /**
+     * Matches and operates in one cache probe: returns the cached operation, or `null` if there is none.
+     */
+    fun retrieve(key: Cache.Key): CachedOperation? = cache.lookup(key)
 }
 
 /**
@@ -224,15 +299,22 @@ class CacheRetriever(private val cache: Cache) : Operator<Term, Term> {
  */
 object FunctionSymbolSubstituter : Operator<Term.FunctionApplication, Term> {
     override fun matches(term: Term, context: Context): Boolean {
-        return term is Term.FunctionApplication && context.substitutions.any {
-            it.from == term.symbol
-        }
+        return term is Term.FunctionApplication && context[term.symbol] != null
     }
 
     override suspend fun operate(term: Term, context: Context): FunctionSubstitution {
         term as Term.FunctionApplication
-        val substitution = context.substitutions.find { it.from == term.symbol }!!.to as Term.FunctionApplication
-        val newFnApplication = Term.function(substitution.symbol, substitution.args + term.args)
+        return operate(term, context, replacement(term, context)!!)
+    }
+
+    /**
+     * Finds the [Term] the context substitutes for the application's symbol, or `null` if the context has none.
+     */
+    fun replacement(term: Term.FunctionApplication, context: Context): Term? = context[term.symbol]
+
+    fun operate(term: Term.FunctionApplication, context: Context, replacement: Term): FunctionSubstitution {
+        replacement as Term.FunctionApplication
+        val newFnApplication = Term.function(replacement.symbol, replacement.args + term.args)
         return FunctionSubstitution(term, newFnApplication, context, context)
     }
 }
@@ -265,7 +347,12 @@ object FunctionResolver : Operator<Term.FunctionApplication, Term.FunctionApplic
  * An [Operator] that operated on a [FunctionApplication][Term.FunctionApplication] to produce a [Term], generally via
  * the execution of some user function, is a `FunctionInvoker`.
  */
-interface FunctionInvoker : Operator<Term.FunctionApplication, Term>
+interface FunctionInvoker : Operator<Term.FunctionApplication, Term> {
+    /**
+     * The symbol of the function applications this invoker invokes, by which the [Computer] dispatches to it.
+     */
+    val symbol: Term.Value.Atom.Symbol
+}
 
 /**
  * When a [Computer] cannot find an [Operator] that [matches][Operator.matches] the current [Term], it throws
@@ -118,6 +118,8 @@ class Data(
 }
 
 class GroovyScriptInvoker(private val computer: Computer, private val evaluator: GroovyScriptEvaluator) : FunctionInvoker {
+    override val symbol = groovyFn
+
     override fun matches(term: Term, context: Context): Boolean {
         return term is Term.FunctionApplication && term.symbol == groovyFn && term.args.size == 2
     }
@@ -6,6 +6,8 @@ import java.util.concurrent.CompletableFuture
  */
 
 class HttpInvoker(private val client: Client, private val computer: Computer) : FunctionInvoker {
+    override val symbol = httpFn
+
     override fun matches(term: Term, context: Context): Boolean {
         return term is Term.FunctionApplication && term.symbol == httpFn && term.args[0] != Term.Value.Atom.Nil
     }
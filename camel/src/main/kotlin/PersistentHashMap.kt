@@ -0,0 +1,146 @@
+/**
+ * An immutable hash map (a hash array mapped trie) whose [put] returns a new map sharing structure with this one.
+ */
+class PersistentHashMap<K : Any, V : Any> private constructor(
+    private val root: Any?,
+    val size: Int,
+    private val hash: Int
+) {
+
+    operator fun get(key: K): V? = find(root, key, key.hashCode(), 0)
+
+    fun containsKey(key: K) = get(key) != null
+
+    /**
+     * Returns a map with `key` mapped to `value`, replacing any existing mapping for `key`.
+     */
+    fun put(key: K, value: V): PersistentHashMap<K, V> {
+        val replaced = arrayOfNulls<Leaf<K, V>>(1)
+        val leaf = Leaf(key.hashCode(), key, value)
+        val newRoot = insert(root, leaf, 0, replaced)
+        val old = replaced[0]
+        return if (old == null) PersistentHashMap(newRoot, size + 1, hash + entryHash(key, value))
+        else PersistentHashMap(newRoot, size, hash - entryHash(old.key, old.value) + entryHash(key, value))
+    }
+
+    fun forEach(action: (K, V) -> Unit) = visit(root, action)
+
+    override fun equals(other: Any?): Boolean {
+        if (this === other) return true
+        if (other !is PersistentHashMap<*, *> || other.size != size || other.hash != hash) return false
+        return sameEntries(root, other.root)
+    }
+
+    override fun hashCode() = hash
+
+    override fun toString(): String {
+        val entries = StringBuilder("{")
+        forEach { key, value -> entries.append(if (entries.length > 1) ", " else "").append(key).append('=').append(value) }
+        return entries.append('}').toString()
+    }
+
+    private class Leaf<out K, out V>(val hash: Int, val key: K, val value: V)
+
+    /** Entries whose keys have the same full hash code. */
+    private class Collision<K, V>(val hash: Int, val leaves: List<Leaf<K, V>>)
+
+    /** A node with a child for each bit set in `bitmap`, in bit order. Children are leaves, collisions or branches. */
+    private class Branch(val bitmap: Int, val children: Array<Any>)
+
+    companion object {
+        private val EMPTY = PersistentHashMap<Any, Any>(null, 0, 0)
+
+        @Suppress("UNCHECKED_CAST")
+        fun <K : Any, V : Any> empty() = EMPTY as PersistentHashMap<K, V>
+
+        private fun entryHash(key: Any, value: Any) = key.hashCode() xor value.hashCode()
+
+        private fun bit(hash: Int, shift: Int) = 1 shl ((hash ushr shift) and 31)
+
+        private fun index(bitmap: Int, bit: Int) = Integer.bitCount(bitmap and (bit - 1))
+
+        @Suppress("UNCHECKED_CAST")
+        private fun <K, V> find(node: Any?, key: K, hash: Int, shift: Int): V? = when (node) {
+            is Leaf<*, *> -> if (node.hash == hash && node.key == key) node.value as V else null
+            is Collision<*, *> -> if (node.hash == hash) node.leaves.firstOrNull { it.key == key }?.value as V? else null
+            is Branch -> {
+                val bit = bit(hash, shift)
+                if (node.bitmap and bit == 0) null
+                else find(node.children[index(node.bitmap, bit)], key, hash, shift + 5)
+            }
+            else -> null
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        private fun <K, V> insert(node: Any?, leaf: Leaf<K, V>, shift: Int, replaced: Array<Leaf<K, V>?>): Any = when (node) {
+            null -> leaf
+            is Leaf<*, *> -> when {
+                node.hash != leaf.hash -> merge(node, node.hash, leaf, leaf.hash, shift)
+                node.key == leaf.key -> {
+                    replaced[0] = node as Leaf<K, V>
+                    leaf
+                }
+                else -> Collision(leaf.hash, listOf(node as Leaf<K, V>, leaf))
+            }
+            is Collision<*, *> -> {
+                if (node.hash != leaf.hash) merge(node, node.hash, leaf, leaf.hash, shift)
+                else {
+                    val leaves = node.leaves as List<Leaf<K, V>>
+                    val existing = leaves.indexOfFirst { it.key == leaf.key }
+                    if (existing < 0) Collision(leaf.hash, leaves + leaf)
+                    else {
+                        replaced[0] = leaves[existing]
+                        Collision(leaf.hash, leaves.toMutableList().also { it[existing] = leaf })
+                    }
+                }
+            }
+            is Branch -> {
+                val bit = bit(leaf.hash, shift)
+                val index = index(node.bitmap, bit)
+                if (node.bitmap and bit == 0) {
+                    val children = arrayOfNulls<Any>(node.children.size + 1)
+                    System.arraycopy(node.children, 0, children, 0, index)
+                    children[index] = leaf
+                    System.arraycopy(node.children, index, children, index + 1, node.children.size - index)
+                    Branch(node.bitmap or bit, children as Array<Any>)
+                } else {
+                    val children = node.children.copyOf()
+                    children[index] = insert(children[index], leaf, shift + 5, replaced)
+                    Branch(node.bitmap, children)
+                }
+            }
+            else -> throw IllegalStateException("Unexpected node $node")
+        }
+
+        private fun merge(a: Any, aHash: Int, b: Any, bHash: Int, shift: Int): Branch {
+            val aBit = bit(aHash, shift)
+            val bBit = bit(bHash, shift)
+            return when {
+                aBit == bBit -> Branch(aBit, arrayOf(merge(a, aHash, b, bHash, shift + 5)))
+                Integer.compareUnsigned(aBit, bBit) < 0 -> Branch(aBit or bBit, arrayOf(a, b))
+                else -> Branch(aBit or bBit, arrayOf(b, a))
+            }
+        }
+
+        /**
+         * Whether two nodes at the same place in their tries hold the same entries.
+         */
+        private fun sameEntries(a: Any?, b: Any?): Boolean = when {
+            a === b -> true
+            a is Leaf<*, *> && b is Leaf<*, *> -> a.hash == b.hash && a.key == b.key && a.value == b.value
+            a is Collision<*, *> && b is Collision<*, *> -> a.hash == b.hash && a.leaves.size == b.leaves.size &&
+                a.leaves.all { x -> b.leaves.any { y -> x.key == y.key && x.value == y.value } }
+            a is Branch && b is Branch -> a.bitmap == b.bitmap && a.children.indices.all { sameEntries(a.children[it], b.children[it]) }
+            else -> false
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        private fun <K, V> visit(node: Any?, action: (K, V) -> Unit) {
+            when (node) {
+                is Leaf<*, *> -> action(node.key as K, node.value as V)
+                is Collision<*, *> -> node.leaves.forEach { action(it.key as K, it.value as V) }
+                is Branch -> node.children.forEach { visit(it, action) }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import org.jetbrains.spek.api.Spek
+import org.jetbrains.spek.api.dsl.describe
+import org.jetbrains.spek.api.dsl.it
+import org.jetbrains.spek.api.dsl.on
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+object CacheSpec: Spek({
+    val context = Context(listOf(Substitution(Term.symbol("cache-spec"), Term.function(Term.symbol("cache-spec-target"), emptyList()))))
+    val term = Term.function(Term.symbol("cache-spec"), emptyList())
+    val key = Cache.Key(term, context)
+    val operation = NoOperation(term, context)
+
+    describe("looking up operations in a HashMapCache") {
+        on("a key that has not been put") {
+            it("misses") {
+                assertNull(HashMapCache.lookup(Cache.Key(Term.function(Term.symbol("cache-spec-absent"), emptyList()), context)))
+            }
+        }
+        on("a key that has been put") {
+            HashMapCache.put(key, operation)
+            val hit = HashMapCache.lookup(Cache.Key(term, context))
+            it("hits, with an equal key") {
+                assertEquals(CachedOperation(operation), hit)
+            }
+            it("agrees with exists and get") {
+                assertTrue(HashMapCache.exists(key))
+                assertEquals(HashMapCache.get(key), hit)
+            }
+        }
+    }
+    describe("looking up operations in NoCache") {
+        on("a key that has been put") {
+            NoCache.put(key, operation)
+            it("misses") {
+                assertNull(NoCache.lookup(key))
+                assertFalse(NoCache.exists(key))
+            }
+        }
+    }
+})
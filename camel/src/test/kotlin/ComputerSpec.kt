@@ -0,0 +1,112 @@
+import kotlinx.coroutines.experimental.runBlocking
+import org.jetbrains.spek.api.Spek
+import org.jetbrains.spek.api.dsl.describe
+import org.jetbrains.spek.api.dsl.it
+import org.jetbrains.spek.api.dsl.on
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+
+object ComputerSpec: Spek({
+    val stubFn = Term.symbol("computer-spec", "stub")
+    val otherFn = Term.symbol("computer-spec", "other")
+    val alias = Term.symbol("computer-spec-alias")
+    val stubbed = Term.function(stubFn, emptyList())
+    val aliased = Term.function(alias, emptyList())
+
+    describe("evaluating a function application") {
+        on("a symbol with an invoker") {
+            val stub = StubInvoker(stubFn, Term.string("stubbed"))
+            val evaluation = runBlocking { Computer(MapCache(), { listOf(stub) }).evaluate(stubbed, Context.empty) }
+            it("invokes it") {
+                assertEquals(Term.string("stubbed"), evaluation.outputTerm)
+                assertEquals(1, stub.calls)
+                assertEquals(listOf("FNRSLN"), evaluation.subOps.map { it.type })
+            }
+        }
+        on("a symbol substituted by the context") {
+            val stub = StubInvoker(stubFn, Term.string("stubbed"))
+            val context = Context(listOf(Substitution(alias, stubbed)))
+            val evaluation = runBlocking { Computer(MapCache(), { listOf(stub) }).evaluate(aliased, context) }
+            it("substitutes it, then invokes the replacement") {
+                assertEquals(Term.string("stubbed"), evaluation.outputTerm)
+                assertEquals(listOf("FNSUBS", "FNRSLN"), evaluation.subOps.map { it.type })
+            }
+        }
+        on("a symbol that has both an invoker and a substitution") {
+            val stub = StubInvoker(stubFn, Term.string("stubbed"))
+            val other = StubInvoker(otherFn, Term.string("other"))
+            val context = Context(listOf(Substitution(stubFn, Term.function(otherFn, emptyList()))))
+            val evaluation = runBlocking { Computer(MapCache(), { listOf(stub, other) }).evaluate(stubbed, context) }
+            it("substitutes rather than invoking") {
+                assertEquals(Term.string("other"), evaluation.outputTerm)
+                assertEquals(0, stub.calls)
+                assertEquals(1, other.calls)
+            }
+        }
+        on("a step already in the cache") {
+            val stub = StubInvoker(stubFn, Term.string("stubbed"))
+            val cache = MapCache()
+            val context = Context(listOf(Substitution(alias, stubbed)))
+            cache.put(Cache.Key(aliased, context), FunctionInvocation("cached", aliased, Term.string("cached"), context, context, emptyList()))
+            val evaluation = runBlocking { Computer(cache, { listOf(stub) }).evaluate(aliased, context) }
+            it("uses the cached operation rather than substituting or invoking") {
+                assertEquals(Term.string("cached"), evaluation.outputTerm)
+                assertEquals(listOf("CACHED"), evaluation.subOps.map { it.type })
+                assertEquals(0, stub.calls)
+            }
+        }
+        on("the same application twice") {
+            val stub = StubInvoker(stubFn, Term.string("stubbed"))
+            val computer = Computer(MapCache(), { listOf(stub) })
+            val first = runBlocking { computer.evaluate(stubbed, Context.empty) }
+            val second = runBlocking { computer.evaluate(stubbed, Context.empty) }
+            it("invokes it once, and answers the second time from the cache") {
+                assertEquals(first.outputTerm, second.outputTerm)
+                assertEquals(1, stub.calls)
+                assertEquals(listOf("CACHED"), second.subOps.map { it.type })
+            }
+        }
+        on("a symbol with neither an invoker nor a substitution") {
+            val computer = Computer(MapCache(), { listOf(StubInvoker(stubFn, Term.string("stubbed"))) })
+            it("fails with an UnresolvableTermException") {
+                assertFailsWith<UnresolvableTermException> {
+                    runBlocking { computer.evaluate(Term.function(Term.symbol("computer-spec-unknown"), emptyList()), Context.empty) }
+                }
+            }
+        }
+        on("a symbol whose invoker does not match the application") {
+            val computer = Computer(MapCache(), { listOf(StubInvoker(stubFn, Term.string("stubbed"), matches = false)) })
+            it("fails with an UnresolvableTermException") {
+                assertFailsWith<UnresolvableTermException> {
+                    runBlocking { computer.evaluate(stubbed, Context.empty) }
+                }
+            }
+        }
+    }
+})
+
+private class StubInvoker(override val symbol: Term.Value.Atom.Symbol, private val result: Term, private val matches: Boolean = true) : FunctionInvoker {
+    var calls = 0
+
+    override fun matches(term: Term, context: Context) = matches && term is Term.FunctionApplication && term.symbol == symbol
+
+    override suspend fun operate(term: Term, context: Context): FunctionInvocation {
+        term as Term.FunctionApplication
+        calls++
+        return FunctionInvocation("stub", term, result, context, context, emptyList())
+    }
+}
+
+private class MapCache : Cache {
+    override val id = java.util.UUID.randomUUID()!!
+
+    private val cache = mutableMapOf<Cache.Key, CachedOperation>()
+
+    override fun exists(key: Cache.Key) = cache.containsKey(key)
+
+    override fun get(key: Cache.Key) = cache[key] ?: throw NoSuchElementException("Key not found in cache")
+
+    override fun put(key: Cache.Key, operation: Operation<*,*>) {
+        cache.put(key, CachedOperation(operation))
+    }
+}
@@ -0,0 +1,85 @@
+import org.jetbrains.spek.api.Spek
+import org.jetbrains.spek.api.dsl.describe
+import org.jetbrains.spek.api.dsl.it
+import org.jetbrains.spek.api.dsl.on
+import kotlin.test.assertEquals
+import kotlin.test.assertNotSame
+import kotlin.test.assertNull
+import kotlin.test.assertSame
+
+object ContextSpec: Spek({
+    val from = Term.symbol("context-spec")
+    val to = Term.function(Term.symbol("context-spec-target"), emptyList())
+    val other = Term.function(Term.symbol("context-spec-other"), emptyList())
+
+    describe("building contexts") {
+        on("the same substitutions, given twice") {
+            val first = Context(listOf(Substitution(from, to)))
+            val second = Context(listOf(Substitution(from, to)))
+            it("interns them as one context") {
+                assertSame(first, second)
+                assertEquals(first.hashCode(), second.hashCode())
+            }
+            it("is the context reached by adding the substitution to the empty context") {
+                assertSame(first, Context.empty + Substitution(from, to))
+            }
+        }
+        on("different substitutions") {
+            it("makes different contexts") {
+                assertNotSame(Context(listOf(Substitution(from, to))), Context(listOf(Substitution(from, other))))
+            }
+        }
+        on("the same substitutions in a different order") {
+            val other = Term.symbol("context-spec-other")
+            val forwards = Context(listOf(Substitution(from, to), Substitution(other, to)))
+            val backwards = Context(listOf(Substitution(other, to), Substitution(from, to)))
+            it("makes a different context, which lists them in its own order") {
+                assertNotSame(forwards, backwards)
+                assertEquals(listOf(from, other), forwards.substitutions.map { it.from })
+                assertEquals(listOf(other, from), backwards.substitutions.map { it.from })
+            }
+        }
+        on("many substitutions") {
+            val symbols = (1..100).map { Term.symbol("context-spec-$it") }.reversed()
+            val context = symbols.fold(Context.empty) { context, symbol -> context + Substitution(symbol, to) }
+            it("lists them in the order they were made") {
+                assertEquals(symbols, context.substitutions.map { it.from })
+            }
+            it("is the context made from them as a list") {
+                assertSame(context, Context(symbols.map { Substitution(it, to) }))
+            }
+        }
+        on("two substitutions for one symbol") {
+            val context = Context(listOf(Substitution(from, to), Substitution(from, other)))
+            it("uses the first") {
+                assertEquals(to, context[from])
+                assertEquals(listOf(Substitution(from, to)), context.substitutions)
+            }
+        }
+    }
+    describe("looking up substitutions") {
+        val context = Context(listOf(Substitution(from, to)))
+        on("a symbol with a substitution") {
+            it("finds the replacement") {
+                assertEquals(to, context[from])
+            }
+        }
+        on("a symbol without one") {
+            it("finds nothing") {
+                assertNull(context[Term.symbol("context-spec-absent")])
+            }
+        }
+        on("adding a substitution for a symbol already substituted") {
+            val replaced = context + Substitution(from, other)
+            it("replaces it, leaving the original context as it was") {
+                assertEquals(other, replaced[from])
+                assertEquals(to, context[from])
+            }
+            it("keeps its place in the order") {
+                val second = Term.symbol("context-spec-second")
+                val both = context + Substitution(second, to) + Substitution(from, other)
+                assertEquals(listOf(Substitution(from, other), Substitution(second, to)), both.substitutions)
+            }
+        }
+    }
+})
@@ -0,0 +1,133 @@
+import org.jetbrains.spek.api.Spek
+import org.jetbrains.spek.api.dsl.describe
+import org.jetbrains.spek.api.dsl.it
+import org.jetbrains.spek.api.dsl.on
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+object PersistentHashMapSpec: Spek({
+
+    fun persistentMapOf(vararg entries: Pair<HashedKey, String>) =
+        entries.fold(PersistentHashMap.empty<HashedKey, String>()) { map, (key, value) -> map.put(key, value) }
+
+    describe("putting entries") {
+        on("keys with different hash codes") {
+            val empty = PersistentHashMap.empty<HashedKey, String>()
+            val map = empty.put(HashedKey("a", 1), "A").put(HashedKey("b", 2), "B")
+            it("finds each of them") {
+                assertEquals("A", map[HashedKey("a", 1)])
+                assertEquals("B", map[HashedKey("b", 2)])
+                assertNull(map[HashedKey("c", 3)])
+                assertEquals(2, map.size)
+            }
+            it("leaves the map put into as it was") {
+                assertEquals(0, empty.size)
+                assertNull(empty[HashedKey("a", 1)])
+            }
+        }
+        on("keys whose hash codes agree in their low bits") {
+            val keys = listOf(HashedKey("a", 1), HashedKey("b", 1 + 32), HashedKey("c", 1 + 32 * 32), HashedKey("d", 1 + (1 shl 31)))
+            val map = persistentMapOf(*keys.map { it to it.name.toUpperCase() }.toTypedArray())
+            it("merges them into branches deep enough to tell them apart") {
+                for (key in keys) assertEquals(key.name.toUpperCase(), map[key])
+                assertNull(map[HashedKey("e", 1 + 64)])
+                assertEquals(4, map.size)
+            }
+        }
+        on("keys with the same hash code") {
+            val map = persistentMapOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "B")
+            it("keeps them both in a collision") {
+                assertEquals("A", map[HashedKey("a", 7)])
+                assertEquals("B", map[HashedKey("b", 7)])
+                assertNull(map[HashedKey("c", 7)])
+                assertFalse(map.containsKey(HashedKey("c", 7)))
+                assertEquals(2, map.size)
+            }
+            it("merges the collision with a key whose hash code differs") {
+                val merged = map.put(HashedKey("c", 7 + 32), "C")
+                assertEquals("A", merged[HashedKey("a", 7)])
+                assertEquals("B", merged[HashedKey("b", 7)])
+                assertEquals("C", merged[HashedKey("c", 7 + 32)])
+                assertEquals(3, merged.size)
+            }
+        }
+        on("a key already mapped") {
+            val map = persistentMapOf(HashedKey("a", 1) to "A", HashedKey("b", 2) to "B")
+            val replaced = map.put(HashedKey("a", 1), "Z")
+            it("replaces its value, leaving the size alone") {
+                assertEquals("Z", replaced[HashedKey("a", 1)])
+                assertEquals(2, replaced.size)
+                assertEquals("A", map[HashedKey("a", 1)])
+            }
+            it("keeps the hash code in step") {
+                assertEquals(persistentMapOf(HashedKey("a", 1) to "Z", HashedKey("b", 2) to "B").hashCode(), replaced.hashCode())
+            }
+        }
+        on("a key already mapped in a collision") {
+            val map = persistentMapOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "B")
+            val replaced = map.put(HashedKey("b", 7), "Z")
+            it("replaces its value and no other") {
+                assertEquals("A", replaced[HashedKey("a", 7)])
+                assertEquals("Z", replaced[HashedKey("b", 7)])
+                assertEquals(2, replaced.size)
+                assertEquals("B", map[HashedKey("b", 7)])
+            }
+            it("is equal to the map put with that value in the first place") {
+                assertEquals(persistentMapOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "Z"), replaced)
+                assertEquals(persistentMapOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "Z").hashCode(), replaced.hashCode())
+            }
+        }
+        on("many keys") {
+            val random = java.util.Random(42)
+            val expected = HashMap<HashedKey, String>()
+            var map = PersistentHashMap.empty<HashedKey, String>()
+            for (i in 0 until 2000) {
+                val key = HashedKey("k${random.nextInt(1500)}", random.nextInt(500))
+                expected[key] = "v$i"
+                map = map.put(key, "v$i")
+            }
+            it("agrees with a HashMap") {
+                assertEquals(expected.size, map.size)
+                for ((key, value) in expected) assertEquals(value, map[key])
+                assertEquals(expected.hashCode(), map.hashCode())
+                var visited = 0
+                map.forEach { key, value -> assertEquals(expected[key], value); visited++ }
+                assertEquals(expected.size, visited)
+            }
+        }
+    }
+    describe("comparing maps") {
+        on("the same entries put in different orders") {
+            val entries = listOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "B", HashedKey("c", 7 + 32) to "C", HashedKey("d", 1) to "D")
+            val forwards = persistentMapOf(*entries.toTypedArray())
+            val backwards = persistentMapOf(*entries.reversed().toTypedArray())
+            it("finds them equal, with equal hash codes") {
+                assertEquals(forwards, backwards)
+                assertEquals(forwards.hashCode(), backwards.hashCode())
+            }
+        }
+        on("maps that differ in one value") {
+            val base = persistentMapOf(HashedKey("a", 1) to "A", HashedKey("b", 2) to "B")
+            it("finds them unequal, whether or not they share the rest") {
+                assertNotEquals(base.put(HashedKey("b", 2), "Z"), base)
+                assertNotEquals(persistentMapOf(HashedKey("a", 1) to "A", HashedKey("b", 2) to "Z"), base)
+                assertTrue(base.put(HashedKey("b", 2), "B") == base)
+            }
+        }
+        on("maps with the same keys in a collision but different values") {
+            it("finds them unequal") {
+                assertNotEquals(persistentMapOf(HashedKey("a", 7) to "A", HashedKey("b", 7) to "B"), persistentMapOf(HashedKey("a", 7) to "B", HashedKey("b", 7) to "A"))
+            }
+        }
+    }
+})
+
+/**
+ * A key with a chosen hash code, so that a spec can make keys collide.
+ */
+private data class HashedKey(val name: String, val hash: Int) {
+    override fun hashCode() = hash
+}
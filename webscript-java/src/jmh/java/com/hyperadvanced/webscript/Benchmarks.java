@@ -0,0 +1,115 @@
+package com.hyperadvanced.webscript;
+
+import org.boon.json.JsonFactory;
+import org.boon.json.JsonParserFactory;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the resolution benchmarks and compares the results with the baseline in {@code benchmarks.baseline}.
+ */
+public final class Benchmarks {
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        final int maxThreads = Integer.getInteger("benchmarks.maxThreads", Runtime.getRuntime().availableProcessors());
+        final Path results = Paths.get(System.getProperty("benchmarks.results", "build/jmh/results.json"));
+        final Path baseline = Paths.get(System.getProperty("benchmarks.baseline", "benchmarks/baseline.json"));
+        final double tolerance = Double.parseDouble(System.getProperty("benchmarks.tolerance", "10")) / 100;
+        final String include = System.getProperty("benchmarks.include", Benchmarks.class.getPackage().getName() + ".*Benchmark");
+
+        Files.createDirectories(results.toAbsolutePath().getParent());
+        final List<Object> combined = new ArrayList<>();
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            final Path run = results.resolveSibling("results-" + threads + "-threads.json");
+            new org.openjdk.jmh.runner.Runner(new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(run.toString())
+                    .build()).run();
+            combined.addAll(read(run));
+        }
+        Files.write(results, JsonFactory.toJson(combined).getBytes(StandardCharsets.UTF_8));
+
+        if (Boolean.getBoolean("benchmarks.record")) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Recorded baseline " + baseline);
+        } else if (Files.exists(baseline)) {
+            final List<String> regressions = compare(scores(read(baseline)), scores(combined), tolerance);
+            regressions.forEach(System.out::println);
+            System.out.printf("%d regression(s) against %s%n", regressions.size(), baseline);
+            if (!regressions.isEmpty()) System.exit(1);
+        } else {
+            System.out.println("No baseline at " + baseline + "; set benchmarks.record to create one");
+        }
+    }
+
+    private static List<String> compare(Map<String, Score> baseline, Map<String, Score> current, double tolerance) {
+        final List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            final Score before = baseline.get(entry.getKey());
+            final Score after = entry.getValue();
+            if (before == null || before.value == 0) continue;
+            final double change = (after.value - before.value) / before.value;
+            if (after.higherIsBetter ? change < -tolerance : change > tolerance) {
+                regressions.add(String.format("%s: %.3f -> %.3f %s (%+.1f%%)", entry.getKey(), before.value, after.value,
+                        after.unit, change * 100));
+            }
+        }
+        return regressions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Score> scores(List<Object> results) {
+        final Map<String, Score> scores = new LinkedHashMap<>();
+        for (Object result : results) {
+            final Map<String, Object> run = (Map<String, Object>) result;
+            final String key = run.get("benchmark") + String.valueOf(run.getOrDefault("params", "")) + " threads=" + run.get("threads");
+            final Map<String, Object> primary = (Map<String, Object>) run.get("primaryMetric");
+            scores.put(key, new Score(primary, "thrpt".equals(run.get("mode"))));
+            final Map<String, Object> secondary = (Map<String, Object>) run.get("secondaryMetrics");
+            if (secondary == null) continue;
+            for (Map.Entry<String, Object> metric : secondary.entrySet()) {
+                if (metric.getKey().endsWith(ALLOCATION)) {
+                    scores.put(key + " " + ALLOCATION, new Score((Map<String, Object>) metric.getValue(), false));
+                }
+            }
+        }
+        return scores;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> read(Path json) throws IOException {
+        return (List<Object>) new JsonParserFactory().setCharset(StandardCharsets.UTF_8).create()
+                .parse(new String(Files.readAllBytes(json), StandardCharsets.UTF_8));
+    }
+
+    private static final class Score {
+        private final double value;
+        private final String unit;
+        private final boolean higherIsBetter;
+
+        private Score(Map<String, Object> metric, boolean higherIsBetter) {
+            this.value = ((Number) metric.get("score")).doubleValue();
+            this.unit = String.valueOf(metric.get("scoreUnit"));
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+}
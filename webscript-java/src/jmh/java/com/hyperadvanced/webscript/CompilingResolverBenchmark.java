@@ -0,0 +1,148 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+
+/**
+ * {@link CompilingFunctionResolver} in its three states: cold (nothing compiled, empty class store), cold with the
+ * bytecode already in the class store (as after a restart), and warm (the function's current version installed).
+ * The cold cases build a new resolver for each call and are measured as single shots.
+ */
+@Fork(1)
+public class CompilingResolverBenchmark {
+
+    static final URI IDENTIFIER = URI.create("bench:upper");
+    static final FunctionSignature SIGNATURE = FunctionSignature.of(IDENTIFIER, TypeToken.of(String.class), TypeToken.of(String.class));
+    static final String SOURCE =
+            "package bench;\n" +
+            "import java.util.function.Function;\n" +
+            "public class Upper implements Function<String, String> {\n" +
+            "    public String apply(String s) { return s.toUpperCase(); }\n" +
+            "}\n";
+
+    static CompilingFunctionResolver resolver(ClassStore store) {
+        final CompilingFunctionResolver resolver = new CompilingFunctionResolver(store);
+        context(objects((SourcesLocator) uri -> Collections.singletonList(SOURCE))).resolveProperties(resolver);
+        return resolver;
+    }
+
+    @State(Scope.Thread)
+    public static class Cold {
+        Path root;
+        CompilingFunctionResolver resolver;
+
+        @Setup(Level.Invocation)
+        public void setUp() throws IOException {
+            root = Files.createTempDirectory("webscript-bench");
+            resolver = resolver(new ClassStore(root));
+        }
+
+        @TearDown(Level.Invocation)
+        public void tearDown() throws IOException {
+            delete(root);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Stored {
+        Path root;
+        ClassStore store;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, FunctionResolutionException {
+            root = Files.createTempDirectory("webscript-bench");
+            store = new ClassStore(root);
+            resolver(store).resolve(SIGNATURE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(root);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class StoredResolver {
+        CompilingFunctionResolver resolver;
+
+        @Setup(Level.Invocation)
+        public void setUp(Stored stored) {
+            resolver = resolver(stored.store);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Warm {
+        Path root;
+        CompilingFunctionResolver resolver;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException, FunctionResolutionException {
+            root = Files.createTempDirectory("webscript-bench");
+            resolver = resolver(new ClassStore(root));
+            resolver.resolve(SIGNATURE);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            delete(root);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5)
+    @Measurement(iterations = 20)
+    public Function<?, ?> cold(Cold state) throws FunctionResolutionException {
+        return state.resolver.resolve(SIGNATURE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 20)
+    @Measurement(iterations = 50)
+    public Function<?, ?> coldFromStore(StoredResolver state) throws FunctionResolutionException {
+        return state.resolver.resolve(SIGNATURE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Function<?, ?> warm(Warm state) throws FunctionResolutionException {
+        return state.resolver.resolve(SIGNATURE);
+    }
+
+    private static void delete(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
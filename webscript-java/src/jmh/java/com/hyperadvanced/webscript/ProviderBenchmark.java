@@ -0,0 +1,73 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.boon.di.Context;
+import org.boon.di.Inject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+
+/**
+ * {@link InjectionHandlingFunctionProvider#get} and {@link ClassCastFunctionTypeConverter#convert} for a function
+ * that has a dependency to inject, resolved through a warm cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderBenchmark {
+
+    static final URI IDENTIFIER = URI.create("bench:greet");
+
+    public static class Greeting implements Function<String, String> {
+        @Inject private FunctionResolver resolver;
+
+        @Override
+        public String apply(String name) {
+            return "Hello " + name;
+        }
+    }
+
+    private InjectionHandlingFunctionProvider provider;
+    private ClassCastFunctionTypeConverter converter;
+    private Function<?, ?> function;
+
+    @Setup
+    public void setUp() throws FunctionResolutionException {
+        function = new Greeting();
+        final FunctionResolver resolver = new CacheFunctionResolver(new MapFunctionResolver(Collections.singletonMap(
+                FunctionSignature.of(IDENTIFIER, TypeToken.of(String.class), TypeToken.of(String.class)), function)));
+        converter = new ClassCastFunctionTypeConverter();
+        final Context context = context(objects(resolver, converter));
+        provider = new InjectionHandlingFunctionProvider(context);
+        context.resolveProperties(provider);
+        provider.get(IDENTIFIER, String.class, String.class);
+    }
+
+    @Benchmark
+    public Function<String, String> providerGet() throws FunctionResolutionException {
+        return provider.get(IDENTIFIER, String.class, String.class);
+    }
+
+    @Benchmark
+    public Function<String, String> convert() {
+        return converter.convert(function, String.class, String.class);
+    }
+}
@@ -0,0 +1,78 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Resolution through {@link MapFunctionResolver} and through a warm {@link CacheFunctionResolver} in front of it,
+ * picking a random one of {@code functions} registered signatures on each call. {@code map} looks up interned
+ * signatures, as every caller going through {@link FunctionSignature#of} does; {@code mapEqual} looks up equal copies
+ * that were not interned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolverBenchmark {
+
+    @Param({"10", "10000"})
+    int functions;
+
+    private FunctionSignature[] signatures;
+    private FunctionSignature[] copies;
+    private MapFunctionResolver mapResolver;
+    private CacheFunctionResolver cacheResolver;
+
+    @Setup
+    public void setUp() throws FunctionResolutionException {
+        signatures = new FunctionSignature[functions];
+        copies = new FunctionSignature[functions];
+        final Map<FunctionSignature, Function<?, ?>> store = new HashMap<>();
+        for (int i = 0; i < functions; i++) {
+            signatures[i] = FunctionSignature.of(URI.create("bench:f" + i), TypeToken.of(String.class), TypeToken.of(String.class));
+            copies[i] = new FunctionSignature<>(URI.create("bench:f" + i), TypeToken.of(String.class), TypeToken.of(String.class));
+            store.put(signatures[i], (Function<String, String>) String::trim);
+        }
+        mapResolver = new MapFunctionResolver(store);
+        cacheResolver = new CacheFunctionResolver(mapResolver);
+        for (FunctionSignature signature : signatures) cacheResolver.resolve(signature);
+    }
+
+    @Benchmark
+    public Function<?, ?> map() throws FunctionResolutionException {
+        return mapResolver.resolve(next());
+    }
+
+    @Benchmark
+    public Function<?, ?> mapEqual() throws FunctionResolutionException {
+        return mapResolver.resolve(copies[ThreadLocalRandom.current().nextInt(copies.length)]);
+    }
+
+    @Benchmark
+    public Function<?, ?> cacheHit() throws FunctionResolutionException {
+        return cacheResolver.resolve(next());
+    }
+
+    private FunctionSignature next() {
+        return signatures[ThreadLocalRandom.current().nextInt(signatures.length)];
+    }
+}
@@ -0,0 +1,90 @@
+package com.hyperadvanced.webscript;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * The asynchronous form of {@link Function}: {@link #apply} returns at once and the result arrives through the future.
+ */
+public interface AsyncFunction<T, R> {
+
+    CompletableFuture<R> apply(T input);
+
+    Class<T> inputType();
+
+    Class<R> returnType();
+
+    static <T, R> AsyncFunction<T, R> async(Function<T, R> function) {
+        return async(function, InvocationExecutors.SHARED);
+    }
+
+    /**
+     * Adapts a synchronous function by running each call on the given executor.
+     */
+    static <T, R> AsyncFunction<T, R> async(Function<T, R> function, Executor executor) {
+        return new AsyncFunction<T, R>() {
+            @Override
+            public CompletableFuture<R> apply(T input) {
+                final CompletableFuture<R> result = new CompletableFuture<>();
+                executor.execute(() -> {
+                    try {
+                        result.complete(function.apply(input));
+                    } catch (Throwable t) {
+                        result.completeExceptionally(t);
+                    }
+                });
+                return result;
+            }
+
+            @Override
+            public Class<T> inputType() {
+                return function.inputType();
+            }
+
+            @Override
+            public Class<R> returnType() {
+                return function.returnType();
+            }
+        };
+    }
+
+    /**
+     * Adapts an asynchronous function to the synchronous form, blocking the caller until the result arrives.
+     */
+    static <T, R> Function<T, R> blocking(AsyncFunction<T, R> function) {
+        return new Function<T, R>() {
+            @Override
+            public R apply(T input) throws Exception {
+                return await(function.apply(input));
+            }
+
+            @Override
+            public Class<T> inputType() {
+                return function.inputType();
+            }
+
+            @Override
+            public Class<R> returnType() {
+                return function.returnType();
+            }
+        };
+    }
+
+    /**
+     * Waits for a future, throwing the exception that completed it, if any, as it was.
+     */
+    static <R> R await(CompletableFuture<R> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException | CompletionException e) {
+            Throwable cause = e.getCause();
+            while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Error) throw (Error) cause;
+            throw (Exception) cause;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hyperadvanced.webscript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A function that can take many inputs in one call. By default each input is applied in turn.
+ */
+public interface BatchFunction<T, R> extends Function<T, R> {
+
+    /**
+     * @return one result for each input, in input order
+     */
+    default List<R> applyBatch(List<? extends T> inputs) {
+        final List<R> results = new ArrayList<>(inputs.size());
+        for (T input : inputs) results.add(apply(input));
+        return results;
+    }
+
+    /**
+     * Returns the function itself if it takes batches, or a view of it that applies each input in turn.
+     */
+    static <T, R> BatchFunction<T, R> of(Function<T, R> function) {
+        if (function instanceof BatchFunction) return (BatchFunction<T, R>) function;
+        return function::apply;
+    }
+}
@@ -0,0 +1,120 @@
+package com.hyperadvanced.webscript;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Turns a list-accepting, list-returning service into a single-item one, collecting concurrent calls into batches
+ * of up to {@code maxBatchSize} items or {@code maxDelay}. It is not reachable through {@link Service}, whose named
+ * services are not implemented yet, so construct it over a {@link ServiceProvider} of your own.
+ */
+public final class BatchingServiceProvider<IN, OUT> implements ServiceProvider<IN, OUT> {
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "webscript-batch-timer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ServiceProvider<List<IN>, List<OUT>> listService;
+    private final Executor executor;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Object lock = new Object();
+    private Batch pending;
+
+    public BatchingServiceProvider(ServiceProvider<List<IN>, List<OUT>> listService, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(listService, maxBatchSize, maxDelay, unit, InvocationExecutors.SHARED);
+    }
+
+    public BatchingServiceProvider(ServiceProvider<List<IN>, List<OUT>> listService, int maxBatchSize, long maxDelay, TimeUnit unit,
+                                   Executor executor) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        this.listService = listService;
+        this.executor = executor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+    }
+
+    @Override
+    public Function<IN, OUT> get() {
+        return input -> {
+            try {
+                return submit(input).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+                throw new CompletionException(e.getCause());
+            }
+        };
+    }
+
+    /**
+     * Adds an item to the current batch, returning a future for its element of the batch result.
+     */
+    public CompletableFuture<OUT> submit(IN input) {
+        final CompletableFuture<OUT> result = new CompletableFuture<>();
+        Batch full = null;
+        synchronized (lock) {
+            if (pending == null) {
+                final Batch batch = pending = new Batch();
+                TIMER.schedule(() -> flushIfPending(batch), maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+            pending.inputs.add(input);
+            pending.results.add(result);
+            if (pending.inputs.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+            }
+        }
+        if (full != null) execute(full);
+        return result;
+    }
+
+    private void flushIfPending(Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) return;
+            pending = null;
+        }
+        execute(batch);
+    }
+
+    private void execute(Batch batch) {
+        try {
+            executor.execute(batch::run);
+        } catch (RejectedExecutionException e) {
+            for (CompletableFuture<OUT> result : batch.results) result.completeExceptionally(e);
+        }
+    }
+
+    private final class Batch {
+        private final List<IN> inputs = new ArrayList<>();
+        private final List<CompletableFuture<OUT>> results = new ArrayList<>();
+
+        private void run() {
+            final List<OUT> outputs;
+            try {
+                outputs = listService.get().apply(inputs);
+                if (outputs == null || outputs.size() != inputs.size()) {
+                    throw new IllegalStateException(String.format("List function returned %s results for %d inputs",
+                            outputs == null ? "no" : outputs.size(), inputs.size()));
+                }
+            } catch (Throwable t) {
+                for (CompletableFuture<OUT> result : results) result.completeExceptionally(t);
+                return;
+            }
+            for (int i = 0; i < results.size(); i++) results.get(i).complete(outputs.get(i));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.hyperadvanced.webscript;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The function a handle is bound to, bound on first use and again after each {@link #invalidate}.
+ */
+final class Binding<F> {
+
+    interface Binder<F> {
+        F bind() throws FunctionResolutionException;
+    }
+
+    private final Binder<F> binder;
+    private final AtomicLong generation = new AtomicLong();
+    private volatile F bound;
+
+    Binding(Binder<F> binder) {
+        this.binder = binder;
+    }
+
+    /**
+     * Returns the bound function, binding it first if necessary. A function bound while the binding was invalidated
+     * is returned to this caller but not kept, as it may be the version being replaced.
+     */
+    F get() throws FunctionResolutionException {
+        F function = bound;
+        if (function == null) {
+            synchronized (this) {
+                function = bound;
+                if (function == null) {
+                    final long started = generation.get();
+                    function = binder.bind();
+                    bound = function;
+                    if (generation.get() != started) bound = null;
+                }
+            }
+        }
+        return function;
+    }
+
+    void invalidate() {
+        generation.incrementAndGet();
+        bound = null;
+    }
+}
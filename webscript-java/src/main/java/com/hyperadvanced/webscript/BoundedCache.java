@@ -0,0 +1,246 @@
+package com.hyperadvanced.webscript;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A bounded, expiring cache with lock-free reads and single-flight loads.
+ */
+final class BoundedCache<K, V> {
+
+    interface Loader<K, V, E extends Exception> {
+        V load(K key) throws E;
+    }
+
+    interface BatchLoader<K, V, E extends Exception> {
+        List<V> loadAll(List<K> keys) throws E;
+    }
+
+    private final ConcurrentMap<K, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<WeakReference<Entry>> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queued = new AtomicLong();
+    private final long maximumSize;
+    private final long expireAfterWriteNanos;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong loadSuccessCount = new AtomicLong();
+    private final AtomicLong loadFailureCount = new AtomicLong();
+    private final AtomicLong totalLoadTime = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    BoundedCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize must be positive");
+        if (expireAfterWrite <= 0) throw new IllegalArgumentException("expireAfterWrite must be positive");
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = unit.toNanos(expireAfterWrite);
+    }
+
+    /**
+     * Returns the cached value for the key, loading it if necessary.
+     */
+    <E extends Exception> V get(K key, Loader<? super K, ? extends V, E> loader) throws E, InterruptedException {
+        Entry entry = entries.get(key);
+        if (entry != null && !entry.isExpired(System.nanoTime())) {
+            hitCount.incrementAndGet();
+            return entry.await();
+        }
+        if (entry != null) entries.remove(key, entry);
+        final Entry newEntry = new Entry(key);
+        entry = entries.putIfAbsent(key, newEntry);
+        if (entry != null) {
+            hitCount.incrementAndGet();
+            return entry.await();
+        }
+        missCount.incrementAndGet();
+        insertionOrder.add(new WeakReference<>(newEntry));
+        queued.incrementAndGet();
+        load(key, newEntry, loader);
+        evictIfNecessary();
+        return newEntry.await();
+    }
+
+    /**
+     * Returns the cached values for the keys, in the order of the keys, loading all those that are missing in one call.
+     */
+    <E extends Exception> List<V> getAll(List<? extends K> keys, BatchLoader<K, ? extends V, E> loader) throws E, InterruptedException {
+        final Map<K, Entry> found = new HashMap<>();
+        final List<K> missing = new ArrayList<>();
+        final List<Entry> claimed = new ArrayList<>();
+        final long now = System.nanoTime();
+        for (K key : keys) {
+            if (found.containsKey(key)) continue;
+            Entry entry = entries.get(key);
+            if (entry != null && entry.isExpired(now)) {
+                entries.remove(key, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                final Entry newEntry = new Entry(key);
+                entry = entries.putIfAbsent(key, newEntry);
+                if (entry == null) {
+                    entry = newEntry;
+                    missing.add(key);
+                    claimed.add(newEntry);
+                    insertionOrder.add(new WeakReference<>(newEntry));
+                    queued.incrementAndGet();
+                }
+            }
+            found.put(key, entry);
+        }
+        hitCount.addAndGet(found.size() - missing.size());
+        missCount.addAndGet(missing.size());
+        if (!missing.isEmpty()) {
+            loadAll(missing, claimed, loader);
+            evictIfNecessary();
+        }
+        final List<V> values = new ArrayList<>(keys.size());
+        for (K key : keys) values.add(found.get(key).<E>await());
+        return values;
+    }
+
+    void put(K key, V value) {
+        final Entry entry = new Entry(key);
+        entry.loadedAt = System.nanoTime();
+        entry.future.complete(value);
+        entries.put(key, entry);
+        insertionOrder.add(new WeakReference<>(entry));
+        queued.incrementAndGet();
+        evictIfNecessary();
+    }
+
+    V getIfPresent(K key) {
+        final Entry entry = entries.get(key);
+        if (entry == null || !entry.future.isDone() || entry.future.isCompletedExceptionally()) return null;
+        if (entry.isExpired(System.nanoTime())) return null;
+        return entry.future.getNow(null);
+    }
+
+    void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    void invalidateIf(Predicate<? super K> predicate) {
+        entries.keySet().removeIf(predicate);
+    }
+
+    void invalidateAll() {
+        entries.clear();
+    }
+
+    long size() {
+        return entries.size();
+    }
+
+    FunctionCache.Stats stats() {
+        return new FunctionCache.Stats(hitCount.get(), missCount.get(), loadSuccessCount.get(), loadFailureCount.get(),
+                totalLoadTime.get(), evictionCount.get());
+    }
+
+    private void load(K key, Entry entry, Loader<? super K, ? extends V, ?> loader) {
+        final long start = System.nanoTime();
+        try {
+            final V value = loader.load(key);
+            final long end = System.nanoTime();
+            totalLoadTime.addAndGet(end - start);
+            loadSuccessCount.incrementAndGet();
+            entry.loadedAt = end;
+            entry.future.complete(value);
+        } catch (Throwable e) {
+            // Whatever the loader throws, the future must complete, or every caller waiting on it would hang
+            totalLoadTime.addAndGet(System.nanoTime() - start);
+            loadFailureCount.incrementAndGet();
+            entries.remove(key, entry);
+            entry.future.completeExceptionally(e);
+        }
+    }
+
+    private void loadAll(List<K> keys, List<Entry> claimed, BatchLoader<K, ? extends V, ?> loader) {
+        final long start = System.nanoTime();
+        try {
+            final List<? extends V> values = loader.loadAll(keys);
+            if (values == null || values.size() != keys.size()) {
+                throw new IllegalStateException(String.format("Batch load returned %s values for %d keys",
+                        values == null ? "no" : values.size(), keys.size()));
+            }
+            final long end = System.nanoTime();
+            totalLoadTime.addAndGet(end - start);
+            loadSuccessCount.incrementAndGet();
+            for (int i = 0; i < claimed.size(); i++) {
+                final Entry entry = claimed.get(i);
+                entry.loadedAt = end;
+                entry.future.complete(values.get(i));
+            }
+        } catch (Throwable e) {
+            totalLoadTime.addAndGet(System.nanoTime() - start);
+            loadFailureCount.incrementAndGet();
+            for (Entry entry : claimed) {
+                entries.remove(entry.key, entry);
+                entry.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void evictIfNecessary() {
+        long budget = queued.get();
+        while (budget-- > 0 && (entries.size() > maximumSize || queued.get() > 2 * Math.max(entries.size(), 1))) {
+            final WeakReference<Entry> reference = insertionOrder.poll();
+            if (reference == null) return;
+            queued.decrementAndGet();
+            final Entry eldest = reference.get();
+            if (eldest == null || entries.get(eldest.key) != eldest) continue;
+            if (entries.size() > maximumSize && eldest.future.isDone()) {
+                if (entries.remove(eldest.key, eldest)) evictionCount.incrementAndGet();
+            } else {
+                insertionOrder.add(reference);
+                queued.incrementAndGet();
+            }
+        }
+    }
+
+    private final class Entry {
+        private final K key;
+        private final CompletableFuture<V> future = new CompletableFuture<>();
+        private volatile long loadedAt = Long.MAX_VALUE;
+
+        private Entry(K key) {
+            this.key = key;
+        }
+
+        private boolean isExpired(long now) {
+            final long loaded = loadedAt;
+            return loaded != Long.MAX_VALUE && now - loaded >= expireAfterWriteNanos;
+        }
+
+        /**
+         * Waits for the load, rethrowing its exception as it was.
+         */
+        @SuppressWarnings("unchecked")
+        private <E extends Exception> V await() throws E, InterruptedException {
+            if (!future.isDone()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Rethrown below
+                }
+            }
+            if (!future.isCompletedExceptionally()) return future.getNow(null);
+            final Throwable cause = future.handle((value, failure) -> failure).getNow(null);
+            if (cause instanceof Error) throw (Error) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw (E) cause;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.hyperadvanced.webscript;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A class loader that defines classes from bytecode held in memory, delegating to its parent for anything else. Its
+ * own classes are looked up before the parent's, so a function whose class name is also on the application class
+ * path (an example function shipped with the runtime, say) still runs the compiled version, and each new version of
+ * it replaces the last.
+ * <p>
+ * The loader also counts the calls in flight on its functions, as reported by whoever calls them, so that a version
+ * that has been replaced can be seen to drain.
+ */
+final class BytecodeClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+    private final LongAdder inFlight = new LongAdder();
+
+    BytecodeClassLoader(ClassLoader parent, Map<String, byte[]> classes) {
+        super(parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!classes.containsKey(name)) return super.loadClass(name, resolve);
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) loaded = findClass(name);
+            if (resolve) resolveClass(loaded);
+            return loaded;
+        }
+    }
+
+    void enter() {
+        inFlight.increment();
+    }
+
+    void exit() {
+        inFlight.decrement();
+    }
+
+    long inFlight() {
+        return inFlight.sum();
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        final byte[] bytes = classes.get(name);
+        if (bytes == null) throw new ClassNotFoundException(name);
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
@@ -1,29 +1,161 @@
 package com.hyperadvanced.webscript;
 
-import org.boon.cache.Cache;
-
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
+ * Caches the functions resolved by another resolver, and for a while the signatures it could not find.
  * Created by Ewan on 2015-09-24.
  */
 public class CacheFunctionResolver implements FunctionResolver {
 
-    private final Cache<FunctionSignature, Function<?, ?>> cache;
+    private final FunctionCache cache;
+    private final BoundedCache<FunctionSignature, FunctionNotFoundException> misses;
     private final FunctionResolver fallback;
+    private final LongAdder missHits = new LongAdder();
+    private final AtomicLong generation = new AtomicLong();
+
+    public CacheFunctionResolver(FunctionResolver fallback) {
+        this(new FunctionCache(10_000, 1, TimeUnit.HOURS), fallback);
+    }
+
+    public CacheFunctionResolver(FunctionCache cache, FunctionResolver fallback) {
+        this(cache, fallback, 100_000, 30, TimeUnit.SECONDS);
+    }
 
-    public CacheFunctionResolver(Cache<FunctionSignature, Function<?, ?>> cache, FunctionResolver fallback) {
+    /**
+     * @param maximumMisses how many unresolvable signatures to remember, the oldest being forgotten first
+     * @param missTtl       how long to remember each one
+     */
+    public CacheFunctionResolver(FunctionCache cache, FunctionResolver fallback, long maximumMisses, long missTtl, TimeUnit unit) {
         this.cache = cache;
         this.fallback = fallback;
+        this.misses = new BoundedCache<>(maximumMisses, missTtl, unit);
+        fallback.addDeployListener(this::invalidate);
     }
 
     @Override
     public Function<?, ?> resolve(FunctionSignature uri) throws FunctionResolutionException {
-        Function<?, ?> function = cache.get(uri);
-        if (function == null) {
-            function = fallback.resolve(uri);
-            cache.put(uri, function);
+        final FunctionNotFoundException miss = misses.getIfPresent(uri);
+        if (miss != null) {
+            missHits.increment();
+            throw miss;
         }
-        return function;
+        final long generation = this.generation.get();
+        try {
+            return cache.get(uri, fallback::resolve);
+        } catch (FunctionNotFoundException e) {
+            remember(uri, e, generation);
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<FunctionSignature, Function<?, ?>> resolveAll(Collection<FunctionSignature> signatures) throws FunctionResolutionException {
+        final Map<FunctionSignature, Function<?, ?>> functions = new HashMap<>();
+        final Map<FunctionSignature, FunctionResolutionException> failures = new HashMap<>();
+        final List<FunctionSignature> uncached = new ArrayList<>();
+        for (FunctionSignature sig : signatures) {
+            final Function<?, ?> cached = cache.getIfPresent(sig);
+            final FunctionNotFoundException miss = cached == null ? misses.getIfPresent(sig) : null;
+            if (cached != null) {
+                functions.put(sig, cached);
+            } else if (miss != null) {
+                missHits.increment();
+                failures.put(sig, miss);
+            } else {
+                uncached.add(sig);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            final long generation = this.generation.get();
+            Map<FunctionSignature, Function<?, ?>> resolved;
+            try {
+                resolved = fallback.resolveAll(uncached);
+            } catch (PartialResolutionException e) {
+                resolved = e.getResolved();
+                for (Map.Entry<FunctionSignature, FunctionResolutionException> failure : e.getFailures().entrySet()) {
+                    if (failure.getValue() instanceof FunctionNotFoundException) {
+                        remember(failure.getKey(), (FunctionNotFoundException) failure.getValue(), generation);
+                    }
+                    failures.put(failure.getKey(), failure.getValue());
+                }
+            }
+            for (Map.Entry<FunctionSignature, Function<?, ?>> function : resolved.entrySet()) {
+                if (this.generation.get() == generation) cache.put(function.getKey(), function.getValue());
+                functions.put(function.getKey(), function.getValue());
+            }
+        }
+        if (!failures.isEmpty()) throw new PartialResolutionException(functions, failures);
+        return functions;
+    }
+
+    /**
+     * Remembers a miss, unless the misses have been invalidated since the lookup that found it began.
+     */
+    private void remember(FunctionSignature sig, FunctionNotFoundException miss, long generation) {
+        if (this.generation.get() != generation) return;
+        misses.put(sig, miss);
+        if (this.generation.get() != generation) misses.invalidate(sig);
+    }
+
+    @Override
+    public void redeploy(URI identifier) throws FunctionResolutionException {
+        invalidateMisses(identifier);
+        fallback.redeploy(identifier);
+        invalidate(identifier);
+    }
+
+    @Override
+    public void addDeployListener(Consumer<URI> listener) {
+        fallback.addDeployListener(listener);
+    }
+
+    private void invalidate(URI identifier) {
+        generation.incrementAndGet();
+        misses.invalidateIf(sig -> sig.getIdentifier().equals(identifier));
+        cache.invalidateIf(sig -> sig.getIdentifier().equals(identifier));
+    }
+
+    /**
+     * Forgets that the function could not be found, for every signature.
+     */
+    public void invalidateMisses(URI identifier) {
+        invalidateMisses(identifier::equals);
+    }
+
+    public void invalidateMisses(Predicate<URI> identifiers) {
+        generation.incrementAndGet();
+        misses.invalidateIf(sig -> identifiers.test(sig.getIdentifier()));
+    }
+
+    public void invalidateMisses() {
+        generation.incrementAndGet();
+        misses.invalidateAll();
+    }
+
+    /**
+     * Forgets the misses of each function as it is registered in the registry.
+     */
+    public void invalidateMissesOn(Registry registry) {
+        registry.addRegistrationListener(identifier -> invalidateMisses(registry.lookupsOf(identifier)));
+    }
+
+    public FunctionCache.Stats stats() {
+        return cache.stats();
+    }
+
+    public long missHitCount() {
+        return missHits.sum();
     }
 }
@@ -0,0 +1,42 @@
+package com.hyperadvanced.webscript;
+
+/**
+ * Counts each call in flight on the function's version and records its time, around the provider's wrappers.
+ */
+final class CallRecorder implements PrimitiveFunction.Around {
+
+    private final LatencyHistogram histogram;
+    private final BytecodeClassLoader version;
+
+    private CallRecorder(LatencyHistogram histogram, BytecodeClassLoader version) {
+        this.histogram = histogram;
+        this.version = version;
+    }
+
+    /**
+     * @return the recorder, or null if there is nothing to record
+     */
+    static CallRecorder of(LatencyHistogram histogram, Object function) {
+        final ClassLoader loader = function.getClass().getClassLoader();
+        final BytecodeClassLoader version = loader instanceof BytecodeClassLoader ? (BytecodeClassLoader) loader : null;
+        return histogram == null && version == null ? null : new CallRecorder(histogram, version);
+    }
+
+    @Override
+    public long start() {
+        if (version != null) version.enter();
+        return histogram == null ? 0 : System.nanoTime();
+    }
+
+    @Override
+    public void succeeded(long start) {
+        if (histogram != null) histogram.record(System.nanoTime() - start);
+        if (version != null) version.exit();
+    }
+
+    @Override
+    public void failed(long start) {
+        if (histogram != null) histogram.recordFailure(System.nanoTime() - start);
+        if (version != null) version.exit();
+    }
+}
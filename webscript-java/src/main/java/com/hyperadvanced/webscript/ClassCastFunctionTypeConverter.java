@@ -5,18 +5,20 @@ import com.google.common.reflect.TypeToken;
 import java.util.function.Function;
 
 /**
+ * Hands a function back as is when its declared types already fit the types asked for. Primitive types fit their
+ * wrappers.
  * Created by Ewan on 2015-09-24.
  */
 public class ClassCastFunctionTypeConverter implements FunctionTypeConverter {
     @Override
+    @SuppressWarnings("unchecked")
     public <Input, Output> Function<Input, Output> convert(Function<?, ?> function, Class<Input> inputClass, Class<Output> outputClass) {
         final TypeToken<?> inputType = inputType(function);
-        if (!inputType.isAssignableFrom(TypeToken.of(inputClass)))
+        if (!inputType.isAssignableFrom(TypeToken.of(inputClass).wrap()))
             throw new ClassCastException(String.format("Cannot cast function input type from %s to %s", inputType.getRawType(), inputClass));
         final TypeToken<?> returnType = returnType(function);
-        if (!returnType.isAssignableFrom(TypeToken.of(outputClass)))
+        if (!returnType.isAssignableFrom(TypeToken.of(outputClass).wrap()))
             throw new ClassCastException(String.format("Cannot cast function return type from %s to %s", returnType.getRawType(), outputClass));
-        //noinspection unchecked
         return (Function<Input, Output>) function;
     }
 }
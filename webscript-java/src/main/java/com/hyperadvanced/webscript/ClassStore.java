@@ -0,0 +1,113 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * An on-disk store of compiled bytecode, addressed by a hash of the source it was compiled from (see {@link #key}).
+ */
+public final class ClassStore {
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    public static ClassStore defaultStore() {
+        final String tmp = System.getProperty("java.io.tmpdir");
+        return new ClassStore(Paths.get(System.getProperty("webscript.classStore", Paths.get(tmp, "webscript-classes").toString())));
+    }
+
+    /**
+     * The JDK and class path the bytecode is compiled against, which go into the key along with the source.
+     */
+    private static final String ENVIRONMENT = environment();
+
+    public static String key(Collection<String> sources) {
+        return key(sources, ENVIRONMENT);
+    }
+
+    static String key(Collection<String> sources, String environment) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(environment, StandardCharsets.UTF_8);
+        for (String source : sources) {
+            hasher.putInt(source.length());
+            hasher.putString(source, StandardCharsets.UTF_8);
+        }
+        return hasher.hash().toString();
+    }
+
+    static String environment() {
+        final StringBuilder environment = new StringBuilder()
+                .append(System.getProperty("java.vendor")).append(' ')
+                .append(System.getProperty("java.version")).append('\n');
+        for (String entry : System.getProperty("java.class.path", "").split(File.pathSeparator)) {
+            final File file = new File(entry);
+            environment.append(entry).append(' ').append(file.length()).append(' ').append(file.lastModified()).append('\n');
+        }
+        return environment.toString();
+    }
+
+    private final Path root;
+
+    public ClassStore(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns the bytecode stored under the given key, or {@code null} if there is none.
+     */
+    public Map<String, byte[]> load(String key) throws IOException {
+        final Path entry = root.resolve(key);
+        if (!Files.isDirectory(entry)) return null;
+        final Map<String, byte[]> classes = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(entry, "*" + CLASS_EXTENSION)) {
+            for (Path file : files) {
+                final String fileName = file.getFileName().toString();
+                classes.put(fileName.substring(0, fileName.length() - CLASS_EXTENSION.length()), Files.readAllBytes(file));
+            }
+        }
+        return classes.isEmpty() ? null : classes;
+    }
+
+    public void store(String key, Map<String, byte[]> classes) throws IOException {
+        final Path entry = root.resolve(key);
+        if (Files.isDirectory(entry)) return;
+        Files.createDirectories(root);
+        final Path staging = Files.createTempDirectory(root, key + ".");
+        try {
+            for (Map.Entry<String, byte[]> cls : classes.entrySet()) {
+                Files.write(staging.resolve(cls.getKey() + CLASS_EXTENSION), cls.getValue());
+            }
+            try {
+                Files.move(staging, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staging, entry);
+            }
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another node or thread stored the same source first; its bytecode is identical.
+        } finally {
+            if (Files.exists(staging)) delete(staging);
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.hyperadvanced.webscript;
+
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Thrown by {@link SourceCompiler} when javac reports errors for a set of sources.
+ */
+public class CompilationException extends Exception {
+
+    private final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+    public CompilationException(String message, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        super(message + ":\n" + diagnostics.stream().map(Object::toString).collect(Collectors.joining("\n")));
+        this.diagnostics = diagnostics;
+    }
+
+    public List<Diagnostic<? extends JavaFileObject>> getDiagnostics() {
+        return diagnostics;
+    }
+}
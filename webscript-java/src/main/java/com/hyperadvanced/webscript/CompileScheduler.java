@@ -0,0 +1,200 @@
+package com.hyperadvanced.webscript;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Runs compiles on a bounded pool of its own, requests ahead of speculative work, joining duplicate submissions.
+ */
+public final class CompileScheduler {
+
+    public enum Priority {
+        REQUEST,
+        SPECULATIVE
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<Object, Task<?>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final long timeoutNanos;
+
+    public CompileScheduler(int workers, long timeout, TimeUnit unit) {
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "webscript-compiler-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * A scheduler with half as many workers as there are processors, and a one minute timeout.
+     */
+    public static CompileScheduler defaultScheduler() {
+        return new CompileScheduler(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 1, TimeUnit.MINUTES);
+    }
+
+    public <T> CompletableFuture<T> submit(Object key, Priority priority, Callable<T> work) {
+        while (true) {
+            final Task<T> task = new Task<>(key, priority, sequence.incrementAndGet(), work);
+            @SuppressWarnings("unchecked")
+            final Task<T> existing = (Task<T>) pending.putIfAbsent(key, task);
+            if (existing == null) {
+                executor.execute(task);
+                return task.future;
+            }
+            if (join(existing, priority)) return existing.future;
+            // Finished between being looked up and being removed; try again
+            pending.remove(key, existing);
+        }
+    }
+
+    /**
+     * Submits one piece of work that produces a result for each of several keys, such as a batch compile.
+     */
+    public <K, T> Map<K, CompletableFuture<T>> submitAll(Collection<K> keys, Priority priority,
+                                                         Function<Set<K>, Callable<Map<K, T>>> work) {
+        final Task<Map<K, T>> batch = new Task<>(null, priority, sequence.incrementAndGet(), null);
+        final Map<K, Task<T>> members = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            while (true) {
+                final Task<T> member = new Task<>(key, priority, batch.sequence, null);
+                member.batch = batch;
+                @SuppressWarnings("unchecked")
+                final Task<T> existing = (Task<T>) pending.putIfAbsent(key, member);
+                if (existing == null) {
+                    members.put(key, member);
+                    futures.put(key, member.future);
+                    break;
+                }
+                if (join(existing, priority)) {
+                    futures.put(key, existing.future);
+                    break;
+                }
+                pending.remove(key, existing);
+            }
+        }
+        if (members.isEmpty()) return futures;
+        batch.future.whenComplete((results, failure) -> {
+            for (Task<T> member : members.values()) {
+                pending.remove(member.key, member);
+                if (failure != null) member.future.completeExceptionally(failure);
+                else if (!results.containsKey(member.key)) member.future.completeExceptionally(new IllegalStateException("No result for " + member.key));
+                else member.future.complete(results.get(member.key));
+            }
+        });
+        synchronized (batch) {
+            // A key joined before now may already have raised the batch's priority, which it takes to the queue
+            try {
+                batch.work = work.apply(members.keySet());
+                executor.execute(batch);
+            } catch (RuntimeException | Error e) {
+                batch.future.completeExceptionally(e);
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * @return false if the work has already finished
+     */
+    private boolean join(Task<?> existing, Priority priority) {
+        if (existing.future.isDone()) return false;
+        final Task<?> scheduled = existing.batch != null ? existing.batch : existing;
+        if (priority.compareTo(scheduled.priority) < 0) promote(scheduled, priority);
+        return true;
+    }
+
+    /**
+     * Submits work and waits for it, up to the scheduler's timeout.
+     */
+    public <T> T await(Object key, Priority priority, Callable<T> work) throws Exception {
+        return await(submit(key, priority, work));
+    }
+
+    /**
+     * Waits for submitted work, up to the scheduler's timeout.
+     */
+    public <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Error) throw (Error) cause;
+            throw (Exception) cause;
+        }
+    }
+
+    public int queued() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void promote(Task<?> task, Priority priority) {
+        synchronized (task) {
+            if (priority.compareTo(task.priority) >= 0) return;
+            // Only work still in the queue can move; work already running keeps going regardless. A batch not yet
+            // queued takes the new priority with it when it is.
+            if (executor.getQueue().remove(task)) {
+                task.priority = priority;
+                executor.execute(task);
+            } else if (task.work == null) {
+                task.priority = priority;
+            }
+        }
+    }
+
+    private final class Task<T> implements Runnable, Comparable<Task<?>> {
+        private final Object key;
+        private final long sequence;
+        private volatile Callable<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private volatile Priority priority;
+        private Task<?> batch;
+
+        private Task(Object key, Priority priority, long sequence, Callable<T> work) {
+            this.key = key;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(work.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            } finally {
+                if (key != null) pending.remove(key, this);
+            }
+        }
+
+        @Override
+        public int compareTo(Task<?> that) {
+            final int byPriority = priority.compareTo(that.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, that.sequence);
+        }
+    }
+}
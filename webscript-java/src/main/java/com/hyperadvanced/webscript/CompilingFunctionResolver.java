@@ -1,13 +1,27 @@
 package com.hyperadvanced.webscript;
 
-import net.openhft.compiler.CachedCompiler;
-import net.openhft.compiler.CompilerUtils;
 import org.boon.di.Inject;
 
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
- * TODO: Write Javadocs for this class.
+ * Resolves functions by compiling their located sources, reusing stored bytecode where the sources are unchanged.
  * Created: 28/09/2015 23:51
  *
  * @author Ewan
@@ -15,19 +29,315 @@ import java.util.function.Function;
 public class CompilingFunctionResolver implements FunctionResolver {
 
     @Inject private SourcesLocator sourcesLocator;
-    private final CachedCompiler compiler = CompilerUtils.CACHED_COMPILER;
+    @Inject private Metrics metrics;
+    private final ClassStore classStore;
+    private final CompileScheduler scheduler;
+    private final SourceCompiler compiler = new SourceCompiler();
+    private final List<Consumer<URI>> deployListeners = new CopyOnWriteArrayList<>();
+    private final FunctionVersions versions = new FunctionVersions(getClass().getClassLoader(), this::deployed);
+
+    public CompilingFunctionResolver() {
+        this(ClassStore.defaultStore());
+    }
+
+    public CompilingFunctionResolver(ClassStore classStore) {
+        this(classStore, CompileScheduler.defaultScheduler());
+    }
+
+    public CompilingFunctionResolver(ClassStore classStore, CompileScheduler scheduler) {
+        this.classStore = classStore;
+        this.scheduler = scheduler;
+    }
 
     @Override
     public Function<?, ?> resolve(FunctionSignature sig) throws FunctionResolutionException {
+        return instantiate(sig, install(locate(sig.getIdentifier())));
+    }
+
+    /**
+     * @throws PartialResolutionException if some of the functions could not be resolved; the others are resolved anyway
+     */
+    @Override
+    public Map<FunctionSignature, Function<?, ?>> resolveAll(Collection<FunctionSignature> signatures) throws FunctionResolutionException {
+        final Map<URI, FunctionResolutionException> failed = new HashMap<>();
+        final Set<URI> located = new HashSet<>();
+        final Map<String, Unit> uncompiled = new LinkedHashMap<>();
+        final List<Unit> pending = new ArrayList<>();
+        for (FunctionSignature sig : signatures) {
+            if (!located.add(sig.getIdentifier())) continue;
+            final Unit unit;
+            try {
+                unit = locate(sig.getIdentifier());
+            } catch (FunctionResolutionException e) {
+                failed.put(sig.getIdentifier(), e);
+                continue;
+            }
+            if (isCurrent(unit)) continue;
+            final Map<String, byte[]> bytecode = stored(unit.key);
+            if (bytecode != null) {
+                versions.install(unit.identifier, unit.key, unit.className, bytecode);
+            } else {
+                uncompiled.putIfAbsent(unit.key, unit);
+                pending.add(unit);
+            }
+        }
+        final Map<String, Map<String, byte[]>> compiled = new HashMap<>();
+        final Map<String, FunctionResolutionException> errors = new HashMap<>();
+        for (List<Unit> batch : batches(uncompiled.values())) compile(batch, compiled, errors);
+        for (Unit unit : pending) {
+            final FunctionResolutionException error = errors.get(unit.key);
+            if (error != null) failed.put(unit.identifier, error);
+            else versions.install(unit.identifier, unit.key, unit.className, compiled.get(unit.key));
+        }
+        final Map<FunctionSignature, Function<?, ?>> functions = new HashMap<>();
+        final Map<FunctionSignature, FunctionResolutionException> failures = new HashMap<>();
+        for (FunctionSignature sig : signatures) {
+            FunctionResolutionException failure = failed.get(sig.getIdentifier());
+            if (failure == null) {
+                try {
+                    functions.put(sig, instantiate(sig, versions.current(sig.getIdentifier())));
+                    continue;
+                } catch (FunctionResolutionException e) {
+                    failure = e;
+                }
+            }
+            failures.put(sig, failure);
+        }
+        if (!failures.isEmpty()) throw new PartialResolutionException(functions, failures);
+        return functions;
+    }
+
+    /**
+     * Compiles and swaps in the current source of a function, or retires it if the source has gone.
+     */
+    @Override
+    public void redeploy(URI identifier) throws FunctionResolutionException {
+        final Unit unit;
+        try {
+            unit = locate(identifier);
+        } catch (FunctionNotFoundException e) {
+            versions.retire(identifier);
+            return;
+        }
+        install(unit);
+    }
+
+    @Override
+    public void addDeployListener(Consumer<URI> listener) {
+        deployListeners.add(listener);
+    }
+
+    public int drainingVersions() {
+        return versions.draining();
+    }
+
+    public long drainingCalls() {
+        return versions.drainingCalls();
+    }
+
+    private void deployed(URI identifier) {
+        for (Consumer<URI> listener : deployListeners) listener.accept(identifier);
+    }
+
+    private boolean isCurrent(Unit unit) {
+        final FunctionVersions.Version version = versions.current(unit.identifier);
+        return version != null && version.key().equals(unit.key);
+    }
+
+    private FunctionVersions.Version install(Unit unit) throws FunctionResolutionException {
+        final FunctionVersions.Version version = versions.current(unit.identifier);
+        if (version != null && version.key().equals(unit.key)) return version;
+        Map<String, byte[]> bytecode = stored(unit.key);
+        if (bytecode == null) {
+            bytecode = schedule(unit.key, CompileScheduler.Priority.REQUEST, unit.identifier, () -> {
+                final long start = System.nanoTime();
+                try {
+                    final Map<String, byte[]> compiled = compiler.compile(unit.sources);
+                    recordCompile(Collections.singletonList(unit), start, false);
+                    store(unit.key, compiled);
+                    return compiled;
+                } catch (CompilationException e) {
+                    recordCompile(Collections.singletonList(unit), start, true);
+                    throw e;
+                }
+            });
+        }
+        return versions.install(unit.identifier, unit.key, unit.className, bytecode);
+    }
+
+    private <T> T schedule(Object key, CompileScheduler.Priority priority, URI identifier,
+                           Callable<T> compile) throws FunctionResolutionException {
+        return await(scheduler.submit(key, priority, compile), identifier);
+    }
+
+    private <T> T await(CompletableFuture<T> compile, URI identifier) throws FunctionResolutionException {
         try {
-            final Class functionClass = compiler.loadFromJava("", sourcesLocator.locate(sig.getIdentifier()).get(0));
+            return scheduler.await(compile);
+        } catch (CompilationException e) {
+            throw new FunctionResolutionException("Error compiling function from source", e, identifier);
+        } catch (TimeoutException e) {
+            throw new FunctionResolutionException("Timed out waiting for function to compile", e, identifier);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FunctionResolutionException("Interrupted waiting for function to compile", e, identifier);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FunctionResolutionException("Error compiling function from source", e, identifier);
+        }
+    }
+
+    /**
+     * Compiles a batch in one task, falling back to one unit at a time so that a failure is reported against its own
+     * function.
+     */
+    private void compile(List<Unit> batch, Map<String, Map<String, byte[]>> compiled,
+                         Map<String, FunctionResolutionException> errors) {
+        final Map<String, Unit> units = new LinkedHashMap<>();
+        for (Unit unit : batch) units.putIfAbsent(unit.key, unit);
+        final Map<String, CompletableFuture<Map<String, byte[]>>> compiles = scheduler.submitAll(units.keySet(),
+                CompileScheduler.Priority.SPECULATIVE, keys -> () -> {
+                    final List<Unit> claimed = new ArrayList<>();
+                    for (String key : keys) claimed.add(units.get(key));
+                    return compileTogether(claimed);
+                });
+        final List<Unit> retry = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Map<String, byte[]>>> compile : compiles.entrySet()) {
+            final Unit unit = units.get(compile.getKey());
             try {
-                return (Function<?, ?>) functionClass.newInstance();
-            } catch (InstantiationException | IllegalAccessException e) {
-                throw new FunctionResolutionException(String.format("Error instantiating function %s", functionClass), sig.getIdentifier());
+                compiled.put(unit.key, await(compile.getValue(), unit.identifier));
+            } catch (FunctionResolutionException e) {
+                if (units.size() > 1 && e.getCause() instanceof CompilationException) retry.add(unit);
+                else errors.put(unit.key, e);
             }
+        }
+        for (Unit unit : retry) compile(Collections.singletonList(unit), compiled, errors);
+    }
+
+    private Map<String, Map<String, byte[]>> compileTogether(List<Unit> batch) throws CompilationException {
+        final List<String> sources = new ArrayList<>();
+        final Map<String, Integer> positions = new HashMap<>();
+        for (Unit unit : batch) {
+            for (String source : unit.sources) {
+                if (positions.putIfAbsent(source, sources.size()) == null) sources.add(source);
+            }
+        }
+        final long start = System.nanoTime();
+        final List<Map<String, byte[]>> compiled;
+        try {
+            compiled = compiler.compileUnits(sources);
+            recordCompile(batch, start, false);
+        } catch (CompilationException e) {
+            recordCompile(batch, start, true);
+            throw e;
+        }
+        final Map<String, Map<String, byte[]>> byKey = new HashMap<>();
+        for (Unit unit : batch) {
+            final Map<String, byte[]> bytecode = new HashMap<>();
+            for (String source : unit.sources) bytecode.putAll(compiled.get(positions.get(source)));
+            store(unit.key, bytecode);
+            byKey.put(unit.key, bytecode);
+        }
+        return byKey;
+    }
+
+    /**
+     * Splits units so that no batch has two sources declaring the same class.
+     */
+    private static List<List<Unit>> batches(Collection<Unit> units) {
+        final List<List<Unit>> batches = new ArrayList<>();
+        final List<Map<String, String>> declared = new ArrayList<>();
+        for (Unit unit : units) {
+            int i = 0;
+            while (i < batches.size() && !compatible(unit, declared.get(i))) i++;
+            if (i == batches.size()) {
+                batches.add(new ArrayList<>());
+                declared.add(new HashMap<>());
+            }
+            batches.get(i).add(unit);
+            for (String source : unit.sources) declared.get(i).put(SourceCompiler.className(source), source);
+        }
+        return batches;
+    }
+
+    private static boolean compatible(Unit unit, Map<String, String> declared) {
+        for (String source : unit.sources) {
+            final String existing = declared.get(SourceCompiler.className(source));
+            if (existing != null && !existing.equals(source)) return false;
+        }
+        return true;
+    }
+
+    private Unit locate(URI identifier) throws FunctionResolutionException {
+        final List<String> sources = sourcesLocator.locate(identifier);
+        if (sources == null || sources.isEmpty()) {
+            throw new FunctionNotFoundException("No source found for function", identifier);
+        }
+        final Set<String> classNames = new HashSet<>();
+        try {
+            for (String source : sources) {
+                if (!classNames.add(SourceCompiler.className(source))) {
+                    throw new FunctionResolutionException("Sources declare the same class twice", identifier);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FunctionResolutionException("Error reading function source", e, identifier);
+        }
+        return new Unit(identifier, sources);
+    }
+
+    private Map<String, byte[]> stored(String key) {
+        try {
+            return classStore.load(key);
+        } catch (IOException e) {
+            // An unreadable entry is treated as a miss.
+            return null;
+        }
+    }
+
+    private void recordCompile(List<Unit> units, long start, boolean failed) {
+        if (metrics == null) return;
+        final long elapsed = System.nanoTime() - start;
+        for (Unit unit : units) {
+            final LatencyHistogram histogram = metrics.histogram("compile", unit.identifier);
+            if (failed) histogram.recordFailure(elapsed);
+            else histogram.record(elapsed);
+        }
+    }
+
+    private void store(String key, Map<String, byte[]> bytecode) {
+        try {
+            classStore.store(key, bytecode);
+        } catch (IOException e) {
+            // The store is only an optimisation; the freshly compiled bytecode is still usable.
+        }
+    }
+
+    private static Function<?, ?> instantiate(FunctionSignature sig, FunctionVersions.Version version) throws FunctionResolutionException {
+        final Class<?> functionClass;
+        try {
+            functionClass = version.loader().loadClass(version.className());
         } catch (ClassNotFoundException e) {
-            throw new FunctionResolutionException("Error compiling function from source", sig.getIdentifier());
+            throw new FunctionResolutionException("Error loading compiled function class", e, sig.getIdentifier());
+        }
+        try {
+            return (Function<?, ?>) functionClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new FunctionResolutionException(String.format("Error instantiating function %s", functionClass), sig.getIdentifier());
+        }
+    }
+
+    private static final class Unit {
+        private final URI identifier;
+        private final List<String> sources;
+        private final String key;
+        private final String className;
+
+        private Unit(URI identifier, List<String> sources) {
+            this.identifier = identifier;
+            this.sources = sources;
+            this.key = ClassStore.key(sources);
+            this.className = SourceCompiler.className(sources.get(0));
         }
     }
 }
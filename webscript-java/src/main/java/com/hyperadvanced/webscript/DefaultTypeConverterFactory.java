@@ -1,18 +1,298 @@
 package com.hyperadvanced.webscript;
 
+import com.google.common.primitives.Primitives;
 import com.google.common.reflect.TypeToken;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
 /**
- * TODO: Write Javadocs for this class.
+ * Builds a {@link TypeConverter} for each pair of types it is asked about, and caches it.
  * Created: 25/10/2015 17:59
  *
  * @author Ewan
  */
 final class DefaultTypeConverterFactory implements TypeConverterFactory {
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final ConcurrentMap<Key, TypeConverter<?, ?>> converters = new ConcurrentHashMap<>();
+
     @Override
+    @SuppressWarnings("unchecked")
     public <SOURCE, DEST> TypeConverter<SOURCE, DEST> converter(TypeToken<SOURCE> from, TypeToken<DEST> to) {
-        // TODO: Implement method.
-        return null;
+        return (TypeConverter<SOURCE, DEST>) converter(from, to, new HashMap<>());
+    }
+
+    private TypeConverter<?, ?> converter(TypeToken<?> from, TypeToken<?> to, Map<Key, DeferredConverter> building) {
+        final Key key = new Key(from, to);
+        final TypeConverter<?, ?> cached = converters.get(key);
+        if (cached != null) return cached;
+        final DeferredConverter known = building.get(key);
+        if (known != null) return known.converter != null ? known.converter : known;
+        final boolean outermost = building.isEmpty();
+        final DeferredConverter deferred = new DeferredConverter();
+        building.put(key, deferred);
+        final TypeConverter<?, ?> converter = build(from, to, building);
+        deferred.converter = converter;
+        if (!outermost) return converter;
+        // Converters built along the way may refer to placeholders, so none is cached unless the whole build succeeds.
+        final TypeConverter<?, ?> raced = converters.putIfAbsent(key, converter);
+        for (Map.Entry<Key, DeferredConverter> built : building.entrySet()) {
+            converters.putIfAbsent(built.getKey(), built.getValue().converter);
+        }
+        return raced != null ? raced : converter;
+    }
+
+    private TypeConverter<?, ?> build(TypeToken<?> from, TypeToken<?> to, Map<Key, DeferredConverter> building) {
+        final Class<?> source = Primitives.wrap(from.getRawType());
+        final Class<?> dest = Primitives.wrap(to.getRawType());
+        if (to.wrap().isAssignableFrom(from.wrap())) {
+            return value -> value;
+        }
+        if (dest == String.class && (Number.class.isAssignableFrom(source) || source == Boolean.class || source == Character.class)) {
+            return nullSafe(String::valueOf);
+        }
+        if (Number.class.isAssignableFrom(dest) && (Number.class.isAssignableFrom(source) || source == String.class)) {
+            return nullSafe(number(dest, source == String.class));
+        }
+        if (dest == Boolean.class && source == String.class) {
+            return nullSafe(value -> Boolean.valueOf((String) value));
+        }
+        if (Collection.class.isAssignableFrom(dest) && Collection.class.isAssignableFrom(source)) {
+            return collection(from, to, building);
+        }
+        if (Map.class.isAssignableFrom(dest) && Map.class.isAssignableFrom(source)) {
+            return map(from, to, building);
+        }
+        if (isPojo(source) && isPojo(dest)) {
+            return pojo(from, to, building);
+        }
+        throw new UnsupportedOperationException(String.format("Conversion from %s to %s not supported", from, to));
+    }
+
+    private static Function<Object, Object> number(Class<?> dest, boolean fromString) {
+        final Function<Number, Object> narrow;
+        if (dest == Integer.class) narrow = n -> (int) integral(n, Integer.MIN_VALUE, Integer.MAX_VALUE, dest);
+        else if (dest == Long.class) narrow = n -> integral(n, Long.MIN_VALUE, Long.MAX_VALUE, dest);
+        else if (dest == Double.class) narrow = n -> finite(n, n.doubleValue(), dest);
+        else if (dest == Float.class) narrow = n -> (float) finite(n, n.floatValue(), dest);
+        else if (dest == Short.class) narrow = n -> (short) integral(n, Short.MIN_VALUE, Short.MAX_VALUE, dest);
+        else if (dest == Byte.class) narrow = n -> (byte) integral(n, Byte.MIN_VALUE, Byte.MAX_VALUE, dest);
+        else if (dest == BigDecimal.class) narrow = n -> n instanceof BigDecimal ? n : new BigDecimal(n.toString());
+        else if (dest == BigInteger.class) narrow = n -> n instanceof BigInteger ? n : new BigDecimal(n.toString()).toBigInteger();
+        else throw new UnsupportedOperationException(String.format("Conversion to %s not supported", dest));
+        if (fromString) return value -> narrow.apply(new BigDecimal((String) value));
+        return value -> narrow.apply((Number) value);
+    }
+
+    /**
+     * The whole part of a number, which must lie between {@code min} and {@code max}.
+     */
+    private static long integral(Number n, long min, long max, Class<?> dest) {
+        final long value;
+        if (n instanceof Double || n instanceof Float) {
+            final double d = n.doubleValue();
+            if (!(d >= Long.MIN_VALUE && d < 0x1p63)) throw outOfRange(n, dest);
+            value = (long) d;
+        } else if (n instanceof BigDecimal || n instanceof BigInteger) {
+            final BigInteger whole = n instanceof BigInteger ? (BigInteger) n : ((BigDecimal) n).toBigInteger();
+            if (whole.bitLength() > 63) throw outOfRange(n, dest);
+            value = whole.longValue();
+        } else {
+            value = n.longValue();
+        }
+        if (value < min || value > max) throw outOfRange(n, dest);
+        return value;
+    }
+
+    private static double finite(Number n, double value, Class<?> dest) {
+        if (Double.isInfinite(value) && !Double.isInfinite(n.doubleValue())) throw outOfRange(n, dest);
+        return value;
+    }
+
+    private static IllegalArgumentException outOfRange(Number n, Class<?> dest) {
+        return new IllegalArgumentException(String.format("%s is out of range for %s", n, dest.getSimpleName()));
+    }
+
+    private TypeConverter<?, ?> collection(TypeToken<?> from, TypeToken<?> to, Map<Key, DeferredConverter> building) {
+        final TypeConverter<Object, Object> elements = raw(converter(
+                from.resolveType(Collection.class.getTypeParameters()[0]),
+                to.resolveType(Collection.class.getTypeParameters()[0]), building));
+        final Class<?> dest = to.getRawType();
+        final Function<Integer, Collection<Object>> factory;
+        if (dest.isAssignableFrom(ArrayList.class)) factory = ArrayList::new;
+        else if (dest.isAssignableFrom(LinkedHashSet.class)) factory = LinkedHashSet::new;
+        else factory = size -> instantiate(dest);
+        return nullSafe(value -> {
+            final Collection<?> in = (Collection<?>) value;
+            final Collection<Object> out = factory.apply(in.size());
+            for (Object element : in) out.add(elements.apply(element));
+            return out;
+        });
+    }
+
+    private TypeConverter<?, ?> map(TypeToken<?> from, TypeToken<?> to, Map<Key, DeferredConverter> building) {
+        final TypeConverter<Object, Object> keys = raw(converter(
+                from.resolveType(Map.class.getTypeParameters()[0]), to.resolveType(Map.class.getTypeParameters()[0]), building));
+        final TypeConverter<Object, Object> values = raw(converter(
+                from.resolveType(Map.class.getTypeParameters()[1]), to.resolveType(Map.class.getTypeParameters()[1]), building));
+        final Class<?> dest = to.getRawType();
+        final Function<Integer, Map<Object, Object>> factory;
+        if (dest.isAssignableFrom(LinkedHashMap.class)) factory = LinkedHashMap::new;
+        else factory = size -> instantiate(dest);
+        return nullSafe(value -> {
+            final Map<?, ?> in = (Map<?, ?>) value;
+            final Map<Object, Object> out = factory.apply(in.size());
+            for (Map.Entry<?, ?> entry : in.entrySet()) out.put(keys.apply(entry.getKey()), values.apply(entry.getValue()));
+            return out;
+        });
+    }
+
+    /**
+     * Copies each field of the destination type from the source field of the same name, if there is one.
+     */
+    private TypeConverter<?, ?> pojo(TypeToken<?> from, TypeToken<?> to, Map<Key, DeferredConverter> building) {
+        final Map<String, Field> sourceFields = fields(from.getRawType());
+        final List<MethodHandle> getters = new ArrayList<>();
+        final List<MethodHandle> setters = new ArrayList<>();
+        final List<TypeConverter<Object, Object>> fieldConverters = new ArrayList<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (Field destField : fields(to.getRawType()).values()) {
+                final Field sourceField = sourceFields.get(destField.getName());
+                if (sourceField == null) continue;
+                fieldConverters.add(raw(converter(
+                        from.resolveType(sourceField.getGenericType()), to.resolveType(destField.getGenericType()), building)));
+                getters.add(lookup.unreflectGetter(sourceField).asType(GETTER_TYPE));
+                setters.add(lookup.unreflectSetter(destField).asType(SETTER_TYPE));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(String.format("Cannot access fields converting %s to %s", from, to), e);
+        }
+        final MethodHandle constructor = constructor(to.getRawType());
+        final int size = getters.size();
+        return nullSafe(value -> {
+            try {
+                final Object out = constructor.invoke();
+                for (int i = 0; i < size; i++) {
+                    final Object fieldValue = (Object) getters.get(i).invokeExact(value);
+                    setters.get(i).invokeExact(out, fieldConverters.get(i).apply(fieldValue));
+                }
+                return out;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new IllegalStateException(String.format("Error converting %s to %s", from, to), t);
+            }
+        });
+    }
+
+    private static boolean isPojo(Class<?> type) {
+        if (type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum()) return false;
+        if (Modifier.isAbstract(type.getModifiers()) || type.getName().startsWith("java.")) return false;
+        try {
+            type.getDeclaredConstructor();
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Map<String, Field> fields(Class<?> type) {
+        final Map<String, Field> fields = new LinkedHashMap<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers) || field.isSynthetic()) continue;
+                field.setAccessible(true);
+                fields.putIfAbsent(field.getName(), field);
+            }
+        }
+        return fields;
+    }
+
+    private static MethodHandle constructor(Class<?> type) {
+        try {
+            final Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new UnsupportedOperationException(String.format("%s has no accessible no-argument constructor", type), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T instantiate(Class<?> type) {
+        try {
+            final Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return (T) constructor.newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(String.format("Cannot instantiate %s", type), e);
+        }
+    }
+
+    private static TypeConverter<Object, Object> nullSafe(Function<Object, Object> conversion) {
+        return value -> value == null ? null : conversion.apply(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TypeConverter<Object, Object> raw(TypeConverter<?, ?> converter) {
+        return (TypeConverter<Object, Object>) converter;
+    }
+
+    /**
+     * Stands in for a converter that is still being built, so that recursive types can refer to their own converter.
+     */
+    private static final class DeferredConverter implements TypeConverter<Object, Object> {
+        private volatile TypeConverter<?, ?> converter;
+
+        @Override
+        public Object apply(Object value) {
+            return raw(converter).apply(value);
+        }
+    }
+
+    private static final class Key {
+        private final TypeToken<?> from;
+        private final TypeToken<?> to;
+
+        private Key(TypeToken<?> from, TypeToken<?> to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key that = (Key) o;
+            return Objects.equals(from, that.from) && Objects.equals(to, that.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
     }
 }
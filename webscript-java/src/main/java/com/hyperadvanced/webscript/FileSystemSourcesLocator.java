@@ -0,0 +1,54 @@
+package com.hyperadvanced.webscript;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Locates function sources on the local file system. The source for identifier {@code ns/name} is the file
+ * {@code <root>/ns/name.java}; any {@code .java} files in the directory {@code <root>/ns/name/} are returned after it,
+ * in name order, as helper sources.
+ */
+public class FileSystemSourcesLocator implements SourcesLocator {
+
+    private final Path root;
+
+    public FileSystemSourcesLocator(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public List<String> locate(URI uri) {
+        final String name = uri.isOpaque() ? uri.getSchemeSpecificPart() : uri.getPath();
+        final Path base = root.resolve(name.startsWith("/") ? name.substring(1) : name).normalize();
+        if (!base.startsWith(root.normalize())) return Collections.emptyList();
+        final Path main = base.resolveSibling(base.getFileName() + ".java");
+        if (!Files.isRegularFile(main)) return Collections.emptyList();
+        try {
+            final List<String> sources = new ArrayList<>();
+            sources.add(read(main));
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> helpers = Files.list(base)) {
+                    for (Path helper : helpers.filter(p -> p.toString().endsWith(".java")).sorted().collect(Collectors.toList())) {
+                        sources.add(read(helper));
+                    }
+                }
+            }
+            return sources;
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Error reading source for %s", uri), e);
+        }
+    }
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+}
@@ -1,5 +1,8 @@
 package com.hyperadvanced.webscript;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * TODO: Write Javadocs for this class.
  * Created: 21/09/2015 21:03
@@ -10,6 +13,15 @@ public interface Function<T, R> {
 
     R apply(T input) throws Exception;
 
+    /**
+     * Applies the function to many inputs in one call, returning one result for each, in input order.
+     */
+    default List<R> applyBatch(List<? extends T> inputs) throws Exception {
+        final List<R> results = new ArrayList<>(inputs.size());
+        for (T input : inputs) results.add(apply(input));
+        return results;
+    }
+
     Class<T> inputType();
 
     Class<R> returnType();
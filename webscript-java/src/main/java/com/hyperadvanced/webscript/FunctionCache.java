@@ -0,0 +1,121 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A bounded cache of resolved functions, keyed by {@link FunctionSignature}.
+ */
+public final class FunctionCache {
+
+    public interface Loader {
+        Function<?, ?> load(FunctionSignature signature) throws FunctionResolutionException;
+    }
+
+    private final BoundedCache<FunctionSignature, Function<?, ?>> cache;
+
+    public FunctionCache(long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this.cache = new BoundedCache<>(maximumSize, expireAfterWrite, unit);
+    }
+
+    public Function<?, ?> get(FunctionSignature signature, Loader loader) throws FunctionResolutionException {
+        try {
+            return cache.get(signature, loader::load);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FunctionResolutionException("Interrupted while waiting for function to load", e, signature.getIdentifier());
+        }
+    }
+
+    public Function<?, ?> getIfPresent(FunctionSignature signature) {
+        return cache.getIfPresent(signature);
+    }
+
+    public void put(FunctionSignature signature, Function<?, ?> function) {
+        cache.put(signature, function);
+    }
+
+    public void invalidate(FunctionSignature signature) {
+        cache.invalidate(signature);
+    }
+
+    public void invalidateIf(Predicate<FunctionSignature> predicate) {
+        cache.invalidateIf(predicate);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public Stats stats() {
+        return cache.stats();
+    }
+
+    public static final class Stats {
+        public static final Stats NONE = new Stats(0, 0, 0, 0, 0, 0);
+
+        private final long hitCount;
+        private final long missCount;
+        private final long loadSuccessCount;
+        private final long loadFailureCount;
+        private final long totalLoadTime;
+        private final long evictionCount;
+
+        Stats(long hitCount, long missCount, long loadSuccessCount, long loadFailureCount, long totalLoadTime, long evictionCount) {
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.loadSuccessCount = loadSuccessCount;
+            this.loadFailureCount = loadFailureCount;
+            this.totalLoadTime = totalLoadTime;
+            this.evictionCount = evictionCount;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public double getHitRate() {
+            final long requests = hitCount + missCount;
+            return requests == 0 ? 1.0 : (double) hitCount / requests;
+        }
+
+        public long getLoadSuccessCount() {
+            return loadSuccessCount;
+        }
+
+        public long getLoadFailureCount() {
+            return loadFailureCount;
+        }
+
+        public long getTotalLoadTime() {
+            return totalLoadTime;
+        }
+
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("hitCount", hitCount)
+                    .add("missCount", missCount)
+                    .add("loadSuccessCount", loadSuccessCount)
+                    .add("loadFailureCount", loadFailureCount)
+                    .add("totalLoadTime", totalLoadTime)
+                    .add("evictionCount", evictionCount)
+                    .toString();
+        }
+    }
+}
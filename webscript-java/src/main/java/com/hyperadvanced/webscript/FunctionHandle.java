@@ -0,0 +1,78 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * A reusable, typed reference to a function, bound on first use and again only after the function is redeployed.
+ */
+public final class FunctionHandle<T, R> {
+
+    private final URI identifier;
+    private final Class<T> inputType;
+    private final Class<R> returnType;
+    private final Binding<Function<T, R>> binding;
+
+    FunctionHandle(Binding.Binder<Function<T, R>> binder, URI identifier, Class<T> inputType, Class<R> returnType) {
+        this.identifier = identifier;
+        this.inputType = inputType;
+        this.returnType = returnType;
+        this.binding = new Binding<>(binder);
+    }
+
+    public R apply(T input) throws FunctionResolutionException {
+        return function().apply(input);
+    }
+
+    /**
+     * Calls the function once for all the inputs, through {@link BatchFunction#applyBatch} if it takes batches.
+     */
+    public List<R> applyBatch(List<? extends T> inputs) throws FunctionResolutionException {
+        return BatchFunction.of(function()).applyBatch(inputs);
+    }
+
+    /**
+     * Calls the function on the shared invocation executor, returning at once.
+     */
+    public CompletableFuture<R> applyAsync(T input) {
+        return applyAsync(input, InvocationExecutors.SHARED);
+    }
+
+    public CompletableFuture<R> applyAsync(T input, Executor executor) {
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                result.complete(apply(input));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the currently bound function, binding it first if necessary.
+     */
+    public Function<T, R> function() throws FunctionResolutionException {
+        return binding.get();
+    }
+
+    public URI getIdentifier() {
+        return identifier;
+    }
+
+    public Class<T> getInputType() {
+        return inputType;
+    }
+
+    public Class<R> getReturnType() {
+        return returnType;
+    }
+
+    void invalidate() {
+        binding.invalidate();
+    }
+}
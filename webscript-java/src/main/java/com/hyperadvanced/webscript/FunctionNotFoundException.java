@@ -0,0 +1,16 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+
+/**
+ * Thrown when there is no function at all for an identifier or signature, as opposed to one that exists but cannot be
+ * compiled or loaded. Misses are expected in normal running (a resolver chain probes each resolver in turn, and
+ * clients ask for identifiers that do not exist), so this exception does not record a stack trace, which makes it
+ * cheap to throw and safe to cache and rethrow.
+ */
+public class FunctionNotFoundException extends FunctionResolutionException {
+
+    public FunctionNotFoundException(String message, URI uri) {
+        super(message, null, false, false, uri);
+    }
+}
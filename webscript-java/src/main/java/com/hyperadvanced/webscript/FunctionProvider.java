@@ -1,6 +1,10 @@
 package com.hyperadvanced.webscript;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 /**
@@ -14,4 +18,73 @@ public interface FunctionProvider {
     <T, R> Function<T, R> get(URI identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException;
 
     <T, R> Function<T, R> get(String identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException;
+
+    /**
+     * Returns a function in a {@link PrimitiveFunction} shape, resolved under the primitive signature.
+     */
+    default <F extends PrimitiveFunction> F get(URI identifier, Class<F> shape) throws FunctionResolutionException {
+        @SuppressWarnings("unchecked")
+        final Function<Object, Object> function = (Function<Object, Object>) get(identifier,
+                PrimitiveFunction.inputType(shape), PrimitiveFunction.returnType(shape));
+        return shape.isInstance(function) ? shape.cast(function) : PrimitiveFunction.boxing(shape, function);
+    }
+
+    default <F extends PrimitiveFunction> F get(String identifier, Class<F> shape) throws FunctionResolutionException {
+        return get(URI.create(identifier), shape);
+    }
+
+    /**
+     * Returns a handle that binds the function once and reuses it on every call.
+     */
+    default <T, R> FunctionHandle<T, R> handle(URI identifier, Class<T> inputType, Class<R> returnType) {
+        return new FunctionHandle<>(() -> get(identifier, inputType, returnType), identifier, inputType, returnType);
+    }
+
+    default <T, R> FunctionHandle<T, R> handle(String identifier, Class<T> inputType, Class<R> returnType) {
+        return handle(URI.create(identifier), inputType, returnType);
+    }
+
+    /**
+     * Returns a handle that binds the function in a {@link PrimitiveFunction} shape once and reuses it on every call.
+     */
+    default <F extends PrimitiveFunction> PrimitiveFunctionHandle<F> handle(URI identifier, Class<F> shape) {
+        return new PrimitiveFunctionHandle<>(() -> get(identifier, shape), identifier, shape);
+    }
+
+    default <F extends PrimitiveFunction> PrimitiveFunctionHandle<F> handle(String identifier, Class<F> shape) {
+        return handle(URI.create(identifier), shape);
+    }
+
+    /**
+     * Calls a function once for all the inputs, returning the results in input order.
+     */
+    default <T, R> List<R> applyBatch(URI identifier, Class<T> inputType, Class<R> returnType, List<? extends T> inputs) throws FunctionResolutionException {
+        return handle(identifier, inputType, returnType).applyBatch(inputs);
+    }
+
+    /**
+     * Calls a function on each of the inputs concurrently, returning the results in input order.
+     */
+    default <T, R> CompletableFuture<List<R>> applyAll(URI identifier, Class<T> inputType, Class<R> returnType, List<? extends T> inputs) {
+        return applyAll(identifier, inputType, returnType, inputs, InvocationExecutors.SHARED);
+    }
+
+    default <T, R> CompletableFuture<List<R>> applyAll(URI identifier, Class<T> inputType, Class<R> returnType, List<? extends T> inputs,
+                                                      Executor executor) {
+        final FunctionHandle<T, R> handle = handle(identifier, inputType, returnType);
+        final List<CompletableFuture<R>> calls = new ArrayList<>(inputs.size());
+        for (T input : inputs) calls.add(handle.applyAsync(input, executor));
+        final CompletableFuture<List<R>> results = CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> {
+                    final List<R> values = new ArrayList<>(calls.size());
+                    for (CompletableFuture<R> call : calls) values.add(call.join());
+                    return values;
+                });
+        for (CompletableFuture<R> call : calls) {
+            call.whenComplete((value, failure) -> {
+                if (failure != null) results.completeExceptionally(failure);
+            });
+        }
+        return results;
+    }
 }
@@ -1,5 +1,10 @@
 package com.hyperadvanced.webscript;
 
+import java.net.URI;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -8,4 +13,36 @@ import java.util.function.Function;
 public interface FunctionResolver {
 
     Function<?, ?> resolve(FunctionSignature signature) throws FunctionResolutionException;
+
+    /**
+     * Resolves several signatures at once; by default each signature is resolved in turn.
+     *
+     * @throws PartialResolutionException if any signature could not be resolved, carrying the functions that were
+     */
+    default Map<FunctionSignature, Function<?, ?>> resolveAll(Collection<FunctionSignature> signatures) throws FunctionResolutionException {
+        final Map<FunctionSignature, Function<?, ?>> functions = new HashMap<>();
+        final Map<FunctionSignature, FunctionResolutionException> failures = new HashMap<>();
+        for (FunctionSignature signature : signatures) {
+            try {
+                functions.put(signature, resolve(signature));
+            } catch (FunctionResolutionException e) {
+                failures.put(signature, e);
+            }
+        }
+        if (!failures.isEmpty()) throw new PartialResolutionException(functions, failures);
+        return functions;
+    }
+
+    /**
+     * Swaps in the latest deployed version of a function, so that later resolutions see it.
+     */
+    default void redeploy(URI identifier) throws FunctionResolutionException {
+    }
+
+    /**
+     * Registers a listener to be called with the identifier of a function whenever a new version of it is put into
+     * service, or it is taken out of service.
+     */
+    default void addDeployListener(Consumer<URI> listener) {
+    }
 }
@@ -0,0 +1,224 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Serves functions over HTTP: a {@code POST} to a mapped path calls the function with the JSON body as its input.
+ */
+public final class FunctionServer {
+
+    private static final Logger log = LoggerFactory.getLogger(FunctionServer.class);
+    private static final TypeToken<Object> ANY = TypeToken.of(Object.class);
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final FunctionResolver resolver;
+    private final FunctionProvider provider;
+    private final UriMapper uriMapper;
+    private final Runner runner;
+    private final JsonCodec codec = new JsonCodec();
+    private final Semaphore permits;
+    private final ExecutorService executor;
+    private final HttpServer server;
+    private final ConcurrentMap<URI, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile WarmStart warmStart;
+
+    public FunctionServer(FunctionResolver resolver, FunctionProvider provider, UriMapper uriMapper, Runner runner,
+                          InetSocketAddress address, int maxConcurrentRequests) throws IOException {
+        this.resolver = resolver;
+        this.provider = provider;
+        this.uriMapper = uriMapper;
+        this.runner = runner;
+        this.permits = new Semaphore(maxConcurrentRequests);
+        resolver.addDeployListener(endpoints::remove);
+        this.executor = InvocationExecutors.create("webscript-invoker");
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void serveMetrics(String path, Metrics metrics) {
+        server.createContext(path, exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    respond(exchange, 405, "Only GET is supported");
+                    return;
+                }
+                respond(exchange, 200, metrics.getSnapshot());
+            } finally {
+                exchange.close();
+            }
+        });
+    }
+
+    /**
+     * Records requests to the given warm start; call it before {@link #start}.
+     */
+    public void record(WarmStart warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    /**
+     * Prepares a function as its first request would, then runs the samples through it.
+     */
+    void warm(URI identifier, List<byte[]> samples, int iterations) throws Exception {
+        final Endpoint endpoint = endpoint(identifier);
+        final Function<Object, Object> function = endpoint.handle.function();
+        if (iterations == 0) return;
+        for (byte[] sample : samples) {
+            for (int i = 0; i < iterations; i++) {
+                final Object result = function.apply(codec.read(new ByteArrayInputStream(sample), endpoint.inputType));
+                if (result instanceof AutoCloseable) ((AutoCloseable) result).close();
+            }
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        boolean aborted = false;
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, "Only POST is supported");
+                return;
+            }
+            final URI identifier = uriMapper.apply(exchange.getRequestURI());
+            if (identifier == null) {
+                respond(exchange, 404, "No function mapped to " + exchange.getRequestURI());
+                return;
+            }
+            if (!permits.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Too many concurrent requests");
+                return;
+            }
+            try {
+                final Endpoint endpoint;
+                final Function<Object, Object> function;
+                try {
+                    endpoint = endpoint(identifier);
+                    function = endpoint.handle.function();
+                } catch (FunctionNotFoundException e) {
+                    respond(exchange, 404, "No function at " + exchange.getRequestURI());
+                    return;
+                } catch (FunctionResolutionException e) {
+                    log.warn("Could not load the function behind {}", exchange.getRequestURI(), e);
+                    respond(exchange, 500, "Function could not be loaded");
+                    return;
+                }
+                invoke(exchange, endpoint, function);
+            } finally {
+                permits.release();
+            }
+        } catch (JsonCodec.MalformedJsonException e) {
+            aborted = !respond(exchange, 400, "Malformed input: " + e.getMessage());
+        } catch (Exception e) {
+            log.error("Error serving {}", exchange.getRequestURI(), e);
+            aborted = !respond(exchange, 500, "Internal server error");
+        } finally {
+            if (!aborted) exchange.close();
+        }
+        // Closing the exchange would end a streamed response as if it were complete. Throwing instead makes the
+        // server drop the connection, so the client sees the response was cut short.
+        if (aborted) throw new IOException("Response to " + exchange.getRequestURI() + " failed part way through");
+    }
+
+    private void invoke(HttpExchange exchange, Endpoint endpoint, Function<Object, Object> function) throws Exception {
+        final String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        InputStream in = exchange.getRequestBody();
+        if (endpoint.recording != null) {
+            endpoint.recording.call();
+            if (endpoint.recording.wantsSample() && (contentType == null || !contentType.startsWith(NDJSON))) {
+                in = endpoint.recording.sample(in);
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", contentType != null && contentType.startsWith(NDJSON) ? NDJSON : "application/json");
+        if (contentType != null && contentType.startsWith(NDJSON)) {
+            exchange.sendResponseHeaders(200, 0);
+            runner.runBatch(function, endpoint.inputType, in, exchange.getResponseBody());
+        } else {
+            final Object result = function.apply(codec.read(in, endpoint.inputType));
+            exchange.sendResponseHeaders(200, 0);
+            final OutputStream out = exchange.getResponseBody();
+            codec.write(result, out);
+            out.flush();
+        }
+    }
+
+    private Endpoint endpoint(URI identifier) throws FunctionResolutionException {
+        final Endpoint existing = endpoints.get(identifier);
+        if (existing != null) return existing;
+        final Function<?, ?> function = resolver.resolve(FunctionSignature.of(identifier, ANY, ANY));
+        final TypeToken<? extends Function> type = TypeToken.of(function.getClass());
+        final Class<?> inputType = type.resolveType(Function.class.getTypeParameters()[0]).getRawType();
+        final Class<?> returnType = type.resolveType(Function.class.getTypeParameters()[1]).getRawType();
+        @SuppressWarnings("unchecked")
+        final FunctionHandle<Object, Object> handle = (FunctionHandle<Object, Object>) provider.handle(identifier, inputType, returnType);
+        final WarmStart warmStart = this.warmStart;
+        @SuppressWarnings("unchecked")
+        final Endpoint endpoint = new Endpoint((Class<Object>) inputType, handle,
+                warmStart == null ? null : warmStart.recording(identifier));
+        final Endpoint raced = endpoints.putIfAbsent(identifier, endpoint);
+        return raced != null ? raced : endpoint;
+    }
+
+    /**
+     * @return false if a response has already started, so that its status can no longer change
+     */
+    private static boolean respond(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) return false;
+        final byte[] body = message.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        return true;
+    }
+
+    private static final class Endpoint {
+        private final Class<Object> inputType;
+        private final FunctionHandle<Object, Object> handle;
+        private final WarmStart.Recording recording;
+
+        private Endpoint(Class<Object> inputType, FunctionHandle<Object, Object> handle, WarmStart.Recording recording) {
+            this.inputType = inputType;
+            this.handle = handle;
+            this.recording = recording;
+        }
+    }
+}
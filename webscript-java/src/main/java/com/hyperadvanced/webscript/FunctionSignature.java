@@ -1,26 +1,33 @@
 package com.hyperadvanced.webscript;
 
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.reflect.TypeToken;
 
 import java.net.URI;
 import java.util.Objects;
 
 /**
- * TODO: Write Javadocs for this class.
+ * Identifies a function by its URI and its input and output types. {@link #of} returns interned signatures.
  * Created: 30/09/2015 23:12
  *
  * @author Ewan
  */
 public final class FunctionSignature<IN, OUT> {
 
-    public static <INPUT, OUTPUT> FunctionSignature of(URI identifier, TypeToken<INPUT> inputType, TypeToken<OUTPUT> outputType) {
-        return new FunctionSignature<>(identifier, inputType, outputType);
+    private static final Interner<FunctionSignature<?, ?>> INTERNER = Interners.newWeakInterner();
+
+    @SuppressWarnings("unchecked")
+    public static <INPUT, OUTPUT> FunctionSignature<INPUT, OUTPUT> of(URI identifier, TypeToken<INPUT> inputType, TypeToken<OUTPUT> outputType) {
+        return (FunctionSignature<INPUT, OUTPUT>) INTERNER.intern(new FunctionSignature<>(identifier, inputType, outputType));
     }
 
     private final URI identifier;
     private final TypeToken<IN> inputType;
     private final TypeToken<OUT> outputType;
+    private int hash;
+    private FunctionSignature<IN, OUT> boxed;
 
     FunctionSignature(URI identifier, TypeToken<IN> inputType, TypeToken<OUT> outputType) {
         this.identifier = identifier;
@@ -40,6 +47,23 @@ public final class FunctionSignature<IN, OUT> {
         return outputType;
     }
 
+    /**
+     * @return whether the input or output type is primitive, as when a caller asks for a {@link PrimitiveFunction}
+     */
+    public boolean isPrimitive() {
+        return inputType.isPrimitive() || outputType.isPrimitive();
+    }
+
+    /**
+     * @return this signature with primitive types replaced by their wrappers
+     */
+    public FunctionSignature<IN, OUT> boxed() {
+        if (!isPrimitive()) return this;
+        FunctionSignature<IN, OUT> b = boxed;
+        if (b == null) boxed = b = of(identifier, inputType.wrap(), outputType.wrap());
+        return b;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -52,7 +76,9 @@ public final class FunctionSignature<IN, OUT> {
 
     @Override
     public int hashCode() {
-        return Objects.hash(identifier, inputType, outputType);
+        int h = hash;
+        if (h == 0) hash = h = Objects.hash(identifier, inputType, outputType);
+        return h;
     }
 
 
@@ -0,0 +1,129 @@
+package com.hyperadvanced.webscript;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tracks the version of each function currently in service, and the replaced versions still draining.
+ */
+final class FunctionVersions {
+
+    static final class Version {
+        private final URI identifier;
+        private final String key;
+        private final String className;
+        private final long number;
+        private final BytecodeClassLoader loader;
+
+        private Version(URI identifier, String key, String className, long number, BytecodeClassLoader loader) {
+            this.identifier = identifier;
+            this.key = key;
+            this.className = className;
+            this.number = number;
+            this.loader = loader;
+        }
+
+        URI identifier() {
+            return identifier;
+        }
+
+        String key() {
+            return key;
+        }
+
+        String className() {
+            return className;
+        }
+
+        long number() {
+            return number;
+        }
+
+        ClassLoader loader() {
+            return loader;
+        }
+
+        long inFlight() {
+            return loader.inFlight();
+        }
+    }
+
+    private final ClassLoader parent;
+    private final Consumer<URI> listener;
+    private final Map<URI, Version> current = new ConcurrentHashMap<>();
+    private final AtomicLong versionNumbers = new AtomicLong();
+    private final ReferenceQueue<BytecodeClassLoader> unloaded = new ReferenceQueue<>();
+    private final Set<Reference<BytecodeClassLoader>> draining = ConcurrentHashMap.newKeySet();
+
+    FunctionVersions(ClassLoader parent) {
+        this(parent, identifier -> { });
+    }
+
+    /**
+     * @param listener called with a function's identifier after a new version of it is installed or it is retired
+     */
+    FunctionVersions(ClassLoader parent, Consumer<URI> listener) {
+        this.parent = parent;
+        this.listener = listener;
+    }
+
+    Version current(URI identifier) {
+        return current.get(identifier);
+    }
+
+    /**
+     * Puts the given bytecode into service as the current version of a function, retiring the previous version.
+     */
+    Version install(URI identifier, String key, String className, Map<String, byte[]> bytecode) {
+        final Version[] replaced = new Version[1];
+        final boolean[] created = new boolean[1];
+        final Version installed = current.compute(identifier, (id, existing) -> {
+            if (existing != null && existing.key.equals(key)) return existing;
+            replaced[0] = existing;
+            created[0] = true;
+            return new Version(id, key, className, versionNumbers.incrementAndGet(), new BytecodeClassLoader(parent, bytecode));
+        });
+        if (replaced[0] != null) drain(replaced[0]);
+        if (created[0]) listener.accept(identifier);
+        return installed;
+    }
+
+    void retire(URI identifier) {
+        final Version retired = current.remove(identifier);
+        if (retired != null) {
+            drain(retired);
+            listener.accept(identifier);
+        }
+    }
+
+    int draining() {
+        expunge();
+        return draining.size();
+    }
+
+    long drainingCalls() {
+        expunge();
+        long calls = 0;
+        for (Reference<BytecodeClassLoader> reference : draining) {
+            final BytecodeClassLoader loader = reference.get();
+            if (loader != null) calls += loader.inFlight();
+        }
+        return calls;
+    }
+
+    private void expunge() {
+        Reference<? extends BytecodeClassLoader> reference;
+        while ((reference = unloaded.poll()) != null) draining.remove(reference);
+    }
+
+    private void drain(Version version) {
+        draining.add(new WeakReference<>(version.loader, unloaded));
+    }
+}
@@ -1,10 +1,15 @@
 package com.hyperadvanced.webscript;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.reflect.TypeToken;
 import org.boon.di.Context;
 import org.boon.di.Inject;
 
+import java.lang.ref.WeakReference;
 import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 /**
@@ -13,8 +18,18 @@ import java.util.function.Function;
 public class InjectionHandlingFunctionProvider implements FunctionProvider {
 
     private final Context context;
+    private final ConcurrentMap<FunctionSignature, FunctionHandle<?, ?>> handles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<FunctionSignature, PrimitiveFunctionHandle<?>> primitiveHandles = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Object, Boolean> injected = new MapMaker().weakKeys().makeMap();
+    private final ClassValue<ConcurrentMap<FunctionSignature, MemoizingFunction<?, ?>>> memoized = new ClassValue<ConcurrentMap<FunctionSignature, MemoizingFunction<?, ?>>>() {
+        @Override
+        protected ConcurrentMap<FunctionSignature, MemoizingFunction<?, ?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
     @Inject private FunctionResolver resolver;
     @Inject private FunctionTypeConverter typeConverter;
+    @Inject private Metrics metrics;
 
     public InjectionHandlingFunctionProvider(Context context) {
         this.context = context;
@@ -22,15 +37,172 @@ public class InjectionHandlingFunctionProvider implements FunctionProvider {
 
     @Override
     public <T, R> Function<T, R> get(URI identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException {
-        final FunctionSignature sig = FunctionSignature.of(identifier, TypeToken.of(inputType), TypeToken.of(returnType));
+        return get(FunctionSignature.of(identifier, TypeToken.of(inputType), TypeToken.of(returnType)), inputType, returnType);
+    }
+
+    /**
+     * Resolves and wraps the function for a signature the caller built once, as a handle does.
+     */
+    private <T, R> Function<T, R> get(FunctionSignature<T, R> sig, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException {
         final Function<?, ?> function = resolver.resolve(sig);
-        context.resolveProperties(function);
-        final Function<T, R> convertedFunction = typeConverter.convert(function, inputType, returnType);
-        return convertedFunction;
+        inject(function);
+        final Function<T, R> convertedFunction = memoize(sig, function, typeConverter.convert(function, inputType, returnType));
+        return recorded(sig, function, convertedFunction);
+    }
+
+    /**
+     * Wraps a {@link Pure} function in a {@link MemoizingFunction}, one per function class and signature.
+     */
+    @SuppressWarnings("unchecked")
+    private <T, R> Function<T, R> memoize(FunctionSignature sig, Object function, Function<T, R> convertedFunction) {
+        final Pure pure = function.getClass().getAnnotation(Pure.class);
+        if (pure == null) return convertedFunction;
+        return (Function<T, R>) memoized.get(function.getClass()).computeIfAbsent(sig, s -> {
+            final MemoizingFunction<T, R> memo = new MemoizingFunction<>(convertedFunction, pure);
+            if (metrics != null) {
+                final WeakReference<MemoizingFunction<T, R>> reference = new WeakReference<>(memo);
+                metrics.gauges("memo." + sig.getIdentifier(), () -> {
+                    final MemoizingFunction<T, R> m = reference.get();
+                    return m == null ? FunctionCache.Stats.NONE : m.stats();
+                }, () -> {
+                    final MemoizingFunction<T, R> m = reference.get();
+                    return m == null ? 0 : m.size();
+                });
+            }
+            return memo;
+        });
+    }
+
+    /**
+     * Wraps a function so that each call and batch is recorded against its signature.
+     */
+    private <T, R> Function<T, R> recorded(FunctionSignature sig, Object instance, Function<T, R> function) {
+        final CallRecorder calls = CallRecorder.of(metrics == null ? null : metrics.histogram("invoke", sig), instance);
+        if (calls == null) return function;
+        final CallRecorder batches = CallRecorder.of(metrics == null ? null : metrics.histogram("invokeBatch", sig), instance);
+        final BatchFunction<T, R> batchFunction = BatchFunction.of(function);
+        return new BatchFunction<T, R>() {
+            @Override
+            public R apply(T input) {
+                final long start = calls.start();
+                try {
+                    final R result = function.apply(input);
+                    calls.succeeded(start);
+                    return result;
+                } catch (RuntimeException | Error e) {
+                    calls.failed(start);
+                    throw e;
+                }
+            }
+
+            @Override
+            public List<R> applyBatch(List<? extends T> inputs) {
+                final long start = batches.start();
+                try {
+                    final List<R> results = batchFunction.applyBatch(inputs);
+                    batches.succeeded(start);
+                    return results;
+                } catch (RuntimeException | Error e) {
+                    batches.failed(start);
+                    throw e;
+                }
+            }
+        };
     }
 
     @Override
     public <T, R> Function<T, R> get(String identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException {
         return get(URI.create(identifier), inputType, returnType);
     }
+
+    /**
+     * Resolves the function under its primitive signature, handing back the instance itself if it implements the shape.
+     */
+    @Override
+    public <F extends PrimitiveFunction> F get(URI identifier, Class<F> shape) throws FunctionResolutionException {
+        return get(primitiveSignature(identifier, shape), shape);
+    }
+
+    private <F extends PrimitiveFunction> F get(FunctionSignature<?, ?> sig, Class<F> shape) throws FunctionResolutionException {
+        final Class<?> inputType = sig.getInputType().getRawType();
+        final Class<?> returnType = sig.getOutputType().getRawType();
+        final Function<?, ?> function = resolver.resolve(sig);
+        inject(function);
+        final F primitive;
+        if (shape.isInstance(function)) {
+            primitive = shape.cast(function);
+        } else {
+            @SuppressWarnings("unchecked")
+            final Function<Object, Object> boxed = (Function<Object, Object>) typeConverter.convert(function, inputType, returnType);
+            primitive = PrimitiveFunction.boxing(shape, boxed);
+        }
+        return recorded(sig, function, shape, primitive);
+    }
+
+    private static FunctionSignature<?, ?> primitiveSignature(URI identifier, Class<? extends PrimitiveFunction> shape) {
+        return FunctionSignature.of(identifier, TypeToken.of(PrimitiveFunction.inputType(shape)), TypeToken.of(PrimitiveFunction.returnType(shape)));
+    }
+
+    private <F extends PrimitiveFunction> F recorded(FunctionSignature sig, Object instance, Class<F> shape, F function) {
+        final CallRecorder calls = CallRecorder.of(metrics == null ? null : metrics.histogram("invoke", sig), instance);
+        if (calls == null) return function;
+        return PrimitiveFunction.around(shape, function, calls);
+    }
+
+    /**
+     * Returns the shared handle for the given identifier and types, which binds through its signature.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T, R> FunctionHandle<T, R> handle(URI identifier, Class<T> inputType, Class<R> returnType) {
+        final FunctionSignature<T, R> sig = FunctionSignature.of(identifier, TypeToken.of(inputType), TypeToken.of(returnType));
+        return (FunctionHandle<T, R>) handles.computeIfAbsent(sig,
+                key -> new FunctionHandle<>(() -> get(sig, inputType, returnType), identifier, inputType, returnType));
+    }
+
+    /**
+     * Returns the shared handle for the given identifier and primitive shape.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <F extends PrimitiveFunction> PrimitiveFunctionHandle<F> handle(URI identifier, Class<F> shape) {
+        final FunctionSignature<?, ?> sig = primitiveSignature(identifier, shape);
+        return (PrimitiveFunctionHandle<F>) primitiveHandles.computeIfAbsent(sig,
+                key -> new PrimitiveFunctionHandle<>(() -> get(sig, shape), identifier, shape));
+    }
+
+    /**
+     * Injects a function instance the first time it is seen.
+     */
+    private void inject(Object function) {
+        if (injected.containsKey(function)) return;
+        final InjectionPlan plan = InjectionPlan.of(function.getClass());
+        if (!plan.isEmpty()) {
+            final long start = System.nanoTime();
+            plan.inject(function, context);
+            if (metrics != null) metrics.histogram("inject", function.getClass().getName()).record(System.nanoTime() - start);
+        }
+        injected.put(function, Boolean.TRUE);
+    }
+
+    public void redeploy(URI identifier) throws FunctionResolutionException {
+        resolver.redeploy(identifier);
+        deployed(identifier);
+    }
+
+    /**
+     * Unbinds every handle to a function and removes its per-signature metrics.
+     */
+    public void deployed(URI identifier) {
+        for (FunctionHandle<?, ?> handle : handles.values()) {
+            if (handle.getIdentifier().equals(identifier)) handle.invalidate();
+        }
+        for (PrimitiveFunctionHandle<?> handle : primitiveHandles.values()) {
+            if (handle.getIdentifier().equals(identifier)) handle.invalidate();
+        }
+        if (metrics != null) {
+            metrics.remove(identifier);
+            metrics.removeGauges("memo." + identifier + ".");
+        }
+    }
 }
@@ -0,0 +1,69 @@
+package com.hyperadvanced.webscript;
+
+import org.boon.di.Context;
+import org.boon.di.Inject;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link Inject}-annotated fields of a class, found once and turned into method handle setters.
+ */
+final class InjectionPlan {
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return new InjectionPlan(type);
+        }
+    };
+
+    static InjectionPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    private final List<Class<?>> types = new ArrayList<>();
+    private final List<MethodHandle> setters = new ArrayList<>();
+
+    private InjectionPlan(Class<?> type) {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!field.isAnnotationPresent(Inject.class) || Modifier.isStatic(field.getModifiers())) continue;
+                field.setAccessible(true);
+                try {
+                    setters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(String.format("Cannot inject field %s", field), e);
+                }
+                types.add(field.getType());
+            }
+        }
+    }
+
+    boolean isEmpty() {
+        return setters.isEmpty();
+    }
+
+    /**
+     * Sets each injectable field of the instance to the object of the field's type held by the context.
+     */
+    void inject(Object instance, Context context) {
+        for (int i = 0; i < setters.size(); i++) {
+            final Object value = context.get(types.get(i));
+            if (value == null) continue;
+            try {
+                setters.get(i).invokeExact(instance, value);
+            } catch (Throwable t) {
+                throw new IllegalStateException(String.format("Error injecting %s into %s", types.get(i), instance.getClass()), t);
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Records the time taken by each call to another resolver in the {@code resolve} histogram of the signature asked
+ * for, and the time taken by each redeploy in the {@code redeploy} histogram of the identifier. Failed resolutions
+ * share one {@code notFound} histogram, so that signatures nobody can resolve do not each get a histogram.
+ */
+public class InstrumentedFunctionResolver implements FunctionResolver {
+
+    private final FunctionResolver delegate;
+    private final Metrics metrics;
+    private final LatencyHistogram notFound;
+
+    public InstrumentedFunctionResolver(FunctionResolver delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.notFound = metrics.histogram("resolve", "notFound");
+    }
+
+    @Override
+    public Function<?, ?> resolve(FunctionSignature sig) throws FunctionResolutionException {
+        final long start = System.nanoTime();
+        final Function<?, ?> function;
+        try {
+            function = delegate.resolve(sig);
+        } catch (FunctionResolutionException | RuntimeException e) {
+            notFound.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.histogram("resolve", sig).record(System.nanoTime() - start);
+        return function;
+    }
+
+    @Override
+    public Map<FunctionSignature, Function<?, ?>> resolveAll(Collection<FunctionSignature> signatures) throws FunctionResolutionException {
+        return delegate.resolveAll(signatures);
+    }
+
+    @Override
+    public void redeploy(URI identifier) throws FunctionResolutionException {
+        final LatencyHistogram histogram = metrics.histogram("redeploy", identifier);
+        final long start = System.nanoTime();
+        try {
+            delegate.redeploy(identifier);
+            histogram.record(System.nanoTime() - start);
+        } catch (FunctionResolutionException | RuntimeException e) {
+            histogram.recordFailure(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    @Override
+    public void addDeployListener(Consumer<URI> listener) {
+        delegate.addDeployListener(listener);
+    }
+}
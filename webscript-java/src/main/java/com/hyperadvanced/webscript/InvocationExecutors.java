@@ -0,0 +1,58 @@
+package com.hyperadvanced.webscript;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors for running function invocations, which may block on I/O or on other functions. A virtual thread per
+ * task is used when the JVM has them, found reflectively so that this class still loads on older JVMs; otherwise a
+ * pool of daemon threads.
+ */
+final class InvocationExecutors {
+
+    /**
+     * Shared by asynchronous calls that are not given an executor of their own. Without virtual threads it has one
+     * thread per processor, so that a large {@link FunctionProvider#applyAll} does not start a thread per input.
+     */
+    static final ExecutorService SHARED = create("webscript-async", Runtime.getRuntime().availableProcessors());
+
+    private InvocationExecutors() {
+    }
+
+    /**
+     * Without virtual threads, a cached pool; callers bound the number of tasks they submit at once.
+     */
+    static ExecutorService create(String threadName) {
+        final ExecutorService virtual = virtualThreadPerTask();
+        return virtual != null ? virtual : Executors.newCachedThreadPool(daemons(threadName));
+    }
+
+    /**
+     * Without virtual threads, a pool of at most {@code maxThreads} threads.
+     */
+    static ExecutorService create(String threadName, int maxThreads) {
+        final ExecutorService virtual = virtualThreadPerTask();
+        return virtual != null ? virtual : Executors.newFixedThreadPool(maxThreads, daemons(threadName));
+    }
+
+    private static ExecutorService virtualThreadPerTask() {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory daemons(String threadName) {
+        return runnable -> {
+            final Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,247 @@
+package com.hyperadvanced.webscript;
+
+import org.boon.json.JsonParserAndMapper;
+import org.boon.json.JsonParserFactory;
+import org.boon.json.JsonSerializer;
+import org.boon.json.JsonSerializerFactory;
+import org.boon.primitive.CharBuf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Reads JSON bytes straight into objects and writes objects straight out as JSON bytes, using boon.
+ */
+final class JsonCodec {
+
+    private static final int NEWLINE = '\n';
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private final ThreadLocal<State> state = ThreadLocal.withInitial(State::new);
+
+    /**
+     * @throws MalformedJsonException if the input is not JSON, or does not map onto the type
+     */
+    <T> T read(InputStream input, Class<T> type) {
+        try {
+            return state.get().parser.parse(type, input, StandardCharsets.UTF_8);
+        } catch (RuntimeException e) {
+            throw new MalformedJsonException(e);
+        }
+    }
+
+    /**
+     * Writes a value as JSON; an {@link Iterator} or {@link Stream} is written as an array, one element at a time.
+     */
+    void write(Object value, OutputStream output) throws IOException {
+        if (value instanceof Stream) {
+            try (Stream<?> stream = (Stream<?>) value) {
+                writeElements(stream.iterator(), output);
+            }
+        } else if (value instanceof Iterator) {
+            try {
+                writeElements((Iterator<?>) value, output);
+            } finally {
+                if (value instanceof AutoCloseable) close((AutoCloseable) value);
+            }
+        } else {
+            state.get().write(value, output);
+        }
+    }
+
+    private void writeElements(Iterator<?> elements, OutputStream output) throws IOException {
+        final State state = this.state.get();
+        output.write('[');
+        boolean first = true;
+        while (elements.hasNext()) {
+            if (!first) output.write(',');
+            state.write(elements.next(), output);
+            if (first) {
+                output.flush();
+                first = false;
+            }
+        }
+        output.write(']');
+    }
+
+    private static void close(AutoCloseable closeable) throws IOException {
+        try {
+            closeable.close();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    Lines lines(InputStream input) {
+        return new Lines(input);
+    }
+
+    void writeLine(Object value, OutputStream output) throws IOException {
+        write(value, output);
+        output.write(NEWLINE);
+    }
+
+    /**
+     * Newline-delimited JSON read from a stream, one value per line. Not thread-safe.
+     */
+    final class Lines {
+        private final InputStream input;
+        private byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+        private int lineStart;
+        private int lineEnd = -1;
+        private boolean exhausted;
+
+        private Lines(InputStream input) {
+            this.input = input;
+        }
+
+        /**
+         * Whether {@link #hasNext} can answer without blocking.
+         */
+        boolean ready() throws IOException {
+            if (lineEnd >= 0 || exhausted) return true;
+            for (int i = position; i < limit; i++) {
+                if (buffer[i] == NEWLINE) return true;
+            }
+            return input.available() > 0;
+        }
+
+        boolean hasNext() throws IOException {
+            if (lineEnd >= 0) return true;
+            int scanned = position;
+            while (true) {
+                int newline = -1;
+                for (int i = scanned; i < limit; i++) {
+                    if (buffer[i] == NEWLINE) {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline < 0 && !exhausted) {
+                    scanned = limit - position;
+                    fill();
+                    continue;
+                }
+                if (newline < 0 && position == limit) return false;
+                final int next = newline < 0 ? limit : newline + 1;
+                int end = newline < 0 ? limit : newline;
+                if (end > position && buffer[end - 1] == '\r') end--;
+                if (isBlank(position, end)) {
+                    scanned = position = next;
+                    continue;
+                }
+                lineStart = position;
+                lineEnd = end;
+                position = next;
+                return true;
+            }
+        }
+
+        /**
+         * Parses the next line, which may be {@code null}.
+         *
+         * @throws NoSuchElementException at the end of the input
+         * @throws MalformedJsonException if the line is not JSON, or does not map onto the type
+         */
+        <T> T next(Class<T> type) throws IOException {
+            if (!hasNext()) throw new NoSuchElementException();
+            final int start = lineStart;
+            final int end = lineEnd;
+            lineEnd = -1;
+            if (isNull(start, end)) return null;
+            try {
+                return state.get().parser.parse(type, decode(buffer, start, end));
+            } catch (RuntimeException e) {
+                throw new MalformedJsonException(e);
+            }
+        }
+
+        private void fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            final int read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) exhausted = true;
+            else limit += read;
+        }
+
+        private boolean isNull(int start, int end) {
+            while (start < end && (buffer[start] == ' ' || buffer[start] == '\t')) start++;
+            while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '\t')) end--;
+            return end - start == NULL.length && buffer[start] == 'n' && buffer[start + 1] == 'u'
+                    && buffer[start + 2] == 'l' && buffer[start + 3] == 'l';
+        }
+
+        private boolean isBlank(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (buffer[i] != ' ' && buffer[i] != '\t' && buffer[i] != '\r') return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Thrown when input cannot be read as JSON of the type asked for.
+     */
+    static final class MalformedJsonException extends IllegalArgumentException {
+        private MalformedJsonException(RuntimeException cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private static char[] decode(byte[] bytes, int start, int end) {
+        final char[] chars = new char[end - start];
+        for (int i = start; i < end; i++) {
+            final byte b = bytes[i];
+            if (b < 0) return new String(bytes, start, end - start, StandardCharsets.UTF_8).toCharArray();
+            chars[i - start] = (char) b;
+        }
+        return chars;
+    }
+
+    private static final class State {
+        private final JsonParserAndMapper parser = new JsonParserFactory().setCharset(StandardCharsets.UTF_8).createFastObjectMapperParser();
+        private final JsonSerializer serializer = new JsonSerializerFactory().create();
+        private final CharBuf chars = CharBuf.create(1024);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+
+        private void write(Object value, OutputStream output) throws IOException {
+            if (value == null) {
+                output.write(NULL);
+                return;
+            }
+            serializer.serialize(chars, value);
+            final int length = chars.len();
+            final CharBuffer in = CharBuffer.wrap(chars.readForRecycle(), 0, length);
+            encoder.reset();
+            CoderResult result;
+            while ((result = encoder.encode(in, bytes, true)).isOverflow()) drain(output);
+            if (result.isError()) result.throwException();
+            while (encoder.flush(bytes).isOverflow()) drain(output);
+            drain(output);
+        }
+
+        private void drain(OutputStream output) throws IOException {
+            output.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
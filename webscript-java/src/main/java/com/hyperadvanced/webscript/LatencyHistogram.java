@@ -0,0 +1,160 @@
+package com.hyperadvanced.webscript;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, in log-linear buckets.
+ */
+public final class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) << SUB_BUCKET_BITS;
+
+    private final String operation;
+    private final String subject;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    private volatile Runnable reattach;
+    private long checkedCount;
+    private long activeAt = System.nanoTime();
+
+    LatencyHistogram(String operation, String subject) {
+        this.operation = operation;
+        this.subject = subject;
+    }
+
+    public void record(long nanos) {
+        final Runnable reattach = this.reattach;
+        if (reattach != null) {
+            this.reattach = null;
+            reattach.run();
+        }
+        final long value = Math.max(nanos, 0);
+        buckets.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * Records an operation that ended in an exception.
+     */
+    public void recordFailure(long nanos) {
+        failures.increment();
+        record(nanos);
+    }
+
+    /**
+     * @return the value at quantile {@code q} (between 0 and 1), in nanoseconds
+     */
+    public long percentile(double q) {
+        final long total = count.sum();
+        if (total == 0) return 0;
+        final long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min((lowerBound(i) + lowerBound(i + 1) - 1) / 2, max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * @return whether nothing has been recorded for at least {@code idleNanos}
+     */
+    boolean isIdle(long now, long idleNanos) {
+        final long seen = count.sum();
+        if (seen != checkedCount) {
+            checkedCount = seen;
+            activeAt = now;
+            return false;
+        }
+        return now - activeAt >= idleNanos;
+    }
+
+    void detach(Runnable reattach) {
+        this.reattach = reattach;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        final int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        if (exponent == MAX_EXPONENT && value >= 1L << MAX_EXPONENT + 1) return BUCKETS - 1;
+        final int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKETS - 1;
+        return (exponent - SUB_BUCKET_BITS + 1 << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        final int exponent = (index >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+        return 1L << exponent | (long) (index & SUB_BUCKETS - 1) << exponent - SUB_BUCKET_BITS;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public String getSubject() {
+        return subject;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMean() {
+        final long total = count.sum();
+        return total == 0 ? 0 : micros(sum.sum()) / total;
+    }
+
+    @Override
+    public double get50thPercentile() {
+        return micros(percentile(0.5));
+    }
+
+    @Override
+    public double get90thPercentile() {
+        return micros(percentile(0.9));
+    }
+
+    @Override
+    public double get99thPercentile() {
+        return micros(percentile(0.99));
+    }
+
+    @Override
+    public double getMax() {
+        return micros(max.get());
+    }
+
+    private static double micros(long nanos) {
+        return nanos / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s count=%d failures=%d mean=%.1f p50=%.1f p90=%.1f p99=%.1f max=%.1f",
+                operation, subject, getCount(), getFailures(), getMean(), get50thPercentile(), get90thPercentile(),
+                get99thPercentile(), getMax());
+    }
+}
@@ -0,0 +1,25 @@
+package com.hyperadvanced.webscript;
+
+/**
+ * The JMX view of a {@link LatencyHistogram}. Times are in microseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    String getOperation();
+
+    String getSubject();
+
+    long getCount();
+
+    long getFailures();
+
+    double getMean();
+
+    double get50thPercentile();
+
+    double get90thPercentile();
+
+    double get99thPercentile();
+
+    double getMax();
+}
@@ -1,29 +1,114 @@
 package com.hyperadvanced.webscript;
 
+import org.boon.di.Context;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+
 /**
- * TODO: Write Javadocs for this class.
+ * Wires together a function resolver chain, a provider and a {@link FunctionServer}, configured from
+ * {@code webscript.*} system properties when run from the command line.
  * Created: 25/10/2015 16:10
  *
  * @author Ewan
  */
 public final class Machine {
 
-    public static void main(String[] args) {
-        final Machine machine = new Machine();
+    public static void main(String[] args) throws IOException {
+        final int maxConcurrentRequests = Integer.getInteger("webscript.maxConcurrentRequests", 10_000);
+        System.setProperty("sun.net.httpserver.idleInterval", Integer.toString(Integer.getInteger("webscript.keepAliveSeconds", 30)));
+        System.setProperty("sun.net.httpserver.maxIdleConnections", Integer.toString(maxConcurrentRequests));
+        final Machine machine = new Machine(
+                new FileSystemSourcesLocator(Paths.get(System.getProperty("webscript.sources", "functions"))),
+                uri -> URI.create(uri.getPath().substring(1)),
+                new InetSocketAddress(Integer.getInteger("webscript.port", 8080)),
+                maxConcurrentRequests);
+        final String manifest = System.getProperty("webscript.warmStart");
+        if (manifest != null) {
+            machine.warmStart(new WarmStart(Paths.get(manifest), 1, TimeUnit.MINUTES,
+                    Integer.getInteger("webscript.warmStart.replayFunctions", 0),
+                    Integer.getInteger("webscript.warmStart.replayIterations", 1_000)));
+        }
         machine.start();
     }
 
     private final FunctionResolver functionResolver;
     private final TypeConverterFactory typeConverterFactory;
     private final Runner runner;
+    private final FunctionProvider functionProvider;
+    private final FunctionServer server;
+    private final Metrics metrics = new Metrics();
+    private WarmStart warmStart;
 
-    public Machine() {
-        functionResolver = new CompilingFunctionResolver();
+    public Machine(SourcesLocator sourcesLocator, UriMapper uriMapper, InetSocketAddress address,
+                   int maxConcurrentRequests) throws IOException {
+        final CompilingFunctionResolver compilingResolver = new CompilingFunctionResolver();
+        final FunctionCache cache = new FunctionCache(10_000, 1, TimeUnit.HOURS);
+        final CacheFunctionResolver cacheResolver = new CacheFunctionResolver(cache, compilingResolver);
+        functionResolver = new InstrumentedFunctionResolver(cacheResolver, metrics);
+        metrics.gauges("cache", cache);
+        metrics.gauge("cache.notFoundHitCount", cacheResolver::missHitCount);
         typeConverterFactory = new DefaultTypeConverterFactory();
         runner = new Runner();
+        final Context context = context(objects(sourcesLocator, functionResolver, typeConverterFactory,
+                new ClassCastFunctionTypeConverter(), metrics));
+        final InjectionHandlingFunctionProvider provider = new InjectionHandlingFunctionProvider(context);
+        context.add(objects(provider));
+        context.resolveProperties(compilingResolver);
+        context.resolveProperties(provider);
+        functionResolver.addDeployListener(provider::deployed);
+        functionProvider = provider;
+        server = new FunctionServer(functionResolver, functionProvider, uriMapper, runner, address,
+                maxConcurrentRequests);
+        server.serveMetrics("/_metrics", metrics);
+    }
+
+    /**
+     * Records the functions called to a warm start, and warms them before listening on the next {@link #start}.
+     */
+    public void warmStart(WarmStart warmStart) {
+        this.warmStart = warmStart;
+        server.record(warmStart);
+        metrics.gauge("warmStart.warmed", warmStart::warmed);
+        metrics.gauge("warmStart.failed", warmStart::failed);
+    }
+
+    public void start() throws IOException {
+        metrics.registerMBeans();
+        metrics.expireIdle(1, TimeUnit.HOURS);
+        if (warmStart != null) {
+            try {
+                warmStart.warm(server);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            warmStart.start();
+        }
+        server.start();
+    }
+
+    public void stop() throws IOException {
+        server.stop(0);
+        metrics.stopExpiring();
+        metrics.unregisterMBeans();
+        if (warmStart != null) warmStart.stop();
+    }
+
+    public void redeploy(URI identifier) throws FunctionResolutionException {
+        functionResolver.redeploy(identifier);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
     }
 
-    public void start() {
-        
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
     }
 }
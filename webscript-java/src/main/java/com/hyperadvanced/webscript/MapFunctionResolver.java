@@ -1,24 +1,28 @@
 package com.hyperadvanced.webscript;
 
-import java.util.HashMap;
 import java.util.Map;
 import java.util.function.Function;
 
 /**
+ * Resolves functions from a fixed catalogue, given up front. The catalogue is laid out once, in a
+ * {@link PerfectHashIndex}, so a lookup is a single array probe. Signatures are interned (see
+ * {@link FunctionSignature#of}), so the probe matches the catalogue's own instance on an identity compare.
  * Created by Ewan on 2015-09-24.
  */
 public class MapFunctionResolver implements FunctionResolver {
 
-    private final Map<FunctionSignature, Function<?,?>> store = new HashMap<>();
+    private final PerfectHashIndex<FunctionSignature, Function<?, ?>> store;
 
     public MapFunctionResolver(Map<FunctionSignature, Function<?,?>> functions) {
-        store.putAll(functions);
+        store = new PerfectHashIndex<>(functions);
     }
 
     @Override
     public Function<?, ?> resolve(FunctionSignature sig) throws FunctionResolutionException {
-        final Function function = store.get(sig);
-        if (function == null) throw new FunctionResolutionException(sig.getIdentifier());
+        Function function = store.get(sig);
+        // A function registered over boxed types also serves callers asking for the primitive shape
+        if (function == null && sig.isPrimitive()) function = store.get(sig.boxed());
+        if (function == null) throw new FunctionNotFoundException("No function with this signature", sig.getIdentifier());
         return function;
     }
 }
@@ -0,0 +1,108 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.hash.Hashing;
+import org.boon.json.JsonSerializer;
+import org.boon.json.JsonSerializerFactory;
+import org.boon.primitive.CharBuf;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Caches the results of a {@link Pure} function by input, computing each miss once however many callers ask for it.
+ */
+public final class MemoizingFunction<T, R> implements BatchFunction<T, R> {
+
+    private static final Object NULL = new Object();
+    // By default boon leaves out nulls, default values and empty strings, arrays and collections, so inputs differing
+    // only in those would share a key.
+    private static final ThreadLocal<JsonSerializer> SERIALIZER = ThreadLocal.withInitial(() -> new JsonSerializerFactory()
+            .includeNulls().includeDefaultValues().includeEmpty().includeBlank().create());
+    private static final ThreadLocal<CharBuf> CHARS = ThreadLocal.withInitial(() -> CharBuf.create(256));
+    private static final ClassValue<Boolean> VALUE_TYPE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) return false;
+            try {
+                return type.getMethod("equals", Object.class).getDeclaringClass() != Object.class
+                        && type.getMethod("hashCode").getDeclaringClass() != Object.class;
+            } catch (NoSuchMethodException e) {
+                return false;
+            }
+        }
+    };
+
+    private final Function<T, R> function;
+    private final BoundedCache<Object, R> results;
+
+    public MemoizingFunction(Function<T, R> function, long maximumSize, long expireAfterWrite, TimeUnit unit) {
+        this.function = function;
+        this.results = new BoundedCache<>(maximumSize, expireAfterWrite, unit);
+    }
+
+    public MemoizingFunction(Function<T, R> function, Pure pure) {
+        this(function, pure.maximumSize(), pure.expireAfterSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public R apply(T input) {
+        try {
+            return results.get(fingerprint(input), key -> function.apply(input));
+        } catch (InterruptedException e) {
+            // Rather than fail, compute the result without waiting for the caller already doing so
+            Thread.currentThread().interrupt();
+            return function.apply(input);
+        }
+    }
+
+    @Override
+    public List<R> applyBatch(List<? extends T> inputs) {
+        final List<Object> keys = new ArrayList<>(inputs.size());
+        final Map<Object, T> byKey = new HashMap<>();
+        for (T input : inputs) {
+            final Object key = fingerprint(input);
+            keys.add(key);
+            byKey.putIfAbsent(key, input);
+        }
+        try {
+            return results.getAll(keys, missing -> {
+                final List<T> misses = new ArrayList<>(missing.size());
+                for (Object key : missing) misses.add(byKey.get(key));
+                return BatchFunction.of(function).applyBatch(misses);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchFunction.of(function).applyBatch(inputs);
+        }
+    }
+
+    public FunctionCache.Stats stats() {
+        return results.stats();
+    }
+
+    public long size() {
+        return results.size();
+    }
+
+    /**
+     * An input that defines {@code equals} and {@code hashCode} is its own key; any other is keyed by a hash of its
+     * class and its JSON, nulls and default values included.
+     */
+    static Object fingerprint(Object input) {
+        if (input == null) return NULL;
+        if (VALUE_TYPE.get(input.getClass())) return input;
+        final CharBuf json = CHARS.get();
+        SERIALIZER.get().serialize(json, input);
+        final int length = json.len();
+        return Hashing.murmur3_128().newHasher()
+                .putUnencodedChars(input.getClass().getName())
+                .putUnencodedChars(CharBuffer.wrap(json.readForRecycle(), 0, length))
+                .hash();
+    }
+}
@@ -0,0 +1,223 @@
+package com.hyperadvanced.webscript;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Latency histograms and gauges for the resolution and invocation of functions.
+ */
+public final class Metrics implements MetricsMXBean {
+
+    private static final String DOMAIN = "com.hyperadvanced.webscript";
+
+    private final ConcurrentMap<String, ConcurrentMap<Object, LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final List<ObjectName> registered = new ArrayList<>();
+    private volatile MBeanServer mBeanServer;
+    private ScheduledExecutorService sweeper;
+
+    public LatencyHistogram histogram(String operation, Object subject) {
+        final ConcurrentMap<Object, LatencyHistogram> bySubject = histograms.computeIfAbsent(operation, o -> new ConcurrentHashMap<>());
+        final LatencyHistogram existing = bySubject.get(subject);
+        if (existing != null) return existing;
+        final LatencyHistogram histogram = new LatencyHistogram(operation, label(subject));
+        final LatencyHistogram raced = bySubject.putIfAbsent(subject, histogram);
+        if (raced != null) return raced;
+        if (mBeanServer != null) register(histogram);
+        return histogram;
+    }
+
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Adds gauges for the hit, miss, load and eviction counts of a cache.
+     */
+    public void gauges(String prefix, FunctionCache cache) {
+        gauges(prefix, cache::stats, cache::size);
+    }
+
+    public void gauges(String prefix, Supplier<FunctionCache.Stats> stats, LongSupplier size) {
+        gauge(prefix + ".hitCount", () -> stats.get().getHitCount());
+        gauge(prefix + ".missCount", () -> stats.get().getMissCount());
+        gauge(prefix + ".loadSuccessCount", () -> stats.get().getLoadSuccessCount());
+        gauge(prefix + ".loadFailureCount", () -> stats.get().getLoadFailureCount());
+        gauge(prefix + ".evictionCount", () -> stats.get().getEvictionCount());
+        gauge(prefix + ".size", size);
+    }
+
+    /**
+     * Removes the histograms for every signature of a function.
+     */
+    public void remove(URI identifier) {
+        for (ConcurrentMap<Object, LatencyHistogram> bySubject : histograms.values()) {
+            bySubject.entrySet().removeIf(entry -> {
+                if (!(entry.getKey() instanceof FunctionSignature)) return false;
+                if (!((FunctionSignature<?, ?>) entry.getKey()).getIdentifier().equals(identifier)) return false;
+                unregister(entry.getValue());
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Removes the histograms of signatures that have recorded nothing for at least {@code idle}.
+     */
+    public synchronized void removeIdle(long idle, TimeUnit unit) {
+        final long now = System.nanoTime();
+        final long idleNanos = unit.toNanos(idle);
+        for (ConcurrentMap<Object, LatencyHistogram> bySubject : histograms.values()) {
+            bySubject.entrySet().removeIf(entry -> {
+                if (!(entry.getKey() instanceof FunctionSignature)) return false;
+                final LatencyHistogram histogram = entry.getValue();
+                if (!histogram.isIdle(now, idleNanos)) return false;
+                final Object subject = entry.getKey();
+                histogram.detach(() -> reattach(bySubject, subject, histogram));
+                unregister(histogram);
+                return true;
+            });
+        }
+    }
+
+    /**
+     * Calls {@link #removeIdle} periodically on a daemon thread, until {@link #stopExpiring}.
+     */
+    public synchronized void expireIdle(long idle, TimeUnit unit) {
+        if (sweeper != null) return;
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "webscript-metrics-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long period = Math.max(unit.toNanos(idle) / 2, 1);
+        sweeper.scheduleAtFixedRate(() -> removeIdle(idle, unit), period, period, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stopExpiring() {
+        if (sweeper == null) return;
+        sweeper.shutdownNow();
+        sweeper = null;
+    }
+
+    private void reattach(ConcurrentMap<Object, LatencyHistogram> bySubject, Object subject, LatencyHistogram histogram) {
+        // A histogram made for the subject since it was dropped keeps its place; the old one's counts are lost
+        if (bySubject.putIfAbsent(subject, histogram) == null && mBeanServer != null) register(histogram);
+    }
+
+    public void removeGauges(String prefix) {
+        gauges.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    public synchronized void registerMBeans() {
+        if (mBeanServer != null) return;
+        mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        register(this, name("type=Metrics"));
+        for (Map<Object, LatencyHistogram> bySubject : histograms.values()) {
+            for (LatencyHistogram histogram : bySubject.values()) register(histogram);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        if (mBeanServer == null) return;
+        for (ObjectName name : registered) {
+            try {
+                mBeanServer.unregisterMBean(name);
+            } catch (InstanceNotFoundException e) {
+                // Already gone
+            } catch (JMException e) {
+                throw new IllegalStateException("Cannot unregister " + name, e);
+            }
+        }
+        registered.clear();
+        mBeanServer = null;
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        final Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        return values;
+    }
+
+    @Override
+    public String getSnapshot() {
+        final StringBuilder snapshot = new StringBuilder();
+        for (Map.Entry<String, Long> gauge : getGauges().entrySet()) {
+            snapshot.append(gauge.getKey()).append(' ').append(gauge.getValue()).append('\n');
+        }
+        for (String operation : new TreeMap<>(histograms).keySet()) {
+            final Map<String, LatencyHistogram> bySubject = new TreeMap<>();
+            for (LatencyHistogram histogram : histograms.get(operation).values()) bySubject.put(histogram.getSubject(), histogram);
+            for (LatencyHistogram histogram : bySubject.values()) snapshot.append(histogram).append('\n');
+        }
+        return snapshot.toString();
+    }
+
+    private synchronized void register(LatencyHistogram histogram) {
+        if (mBeanServer == null) return;
+        register(histogram, name(histogram));
+    }
+
+    private synchronized void unregister(LatencyHistogram histogram) {
+        if (mBeanServer == null) return;
+        final ObjectName name = name(histogram);
+        if (!registered.remove(name)) return;
+        try {
+            mBeanServer.unregisterMBean(name);
+        } catch (InstanceNotFoundException e) {
+            // Already gone
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+
+    private void register(Object mBean, ObjectName name) {
+        try {
+            mBeanServer.registerMBean(mBean, name);
+            registered.add(name);
+        } catch (InstanceAlreadyExistsException e) {
+            // Another Metrics in this JVM got there first; its numbers stay visible
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+    }
+
+    private static ObjectName name(LatencyHistogram histogram) {
+        return name("type=Latency,operation=" + ObjectName.quote(histogram.getOperation())
+                + ",subject=" + ObjectName.quote(histogram.getSubject()));
+    }
+
+    private static ObjectName name(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid metric name " + properties, e);
+        }
+    }
+
+    private static String label(Object subject) {
+        if (subject instanceof FunctionSignature) {
+            final FunctionSignature<?, ?> sig = (FunctionSignature<?, ?>) subject;
+            return sig.getIdentifier() + "(" + sig.getInputType() + " -> " + sig.getOutputType() + ")";
+        }
+        return String.valueOf(subject);
+    }
+}
@@ -0,0 +1,14 @@
+package com.hyperadvanced.webscript;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link Metrics}: the current value of every gauge, and the same text snapshot served over HTTP.
+ * Each latency histogram is registered as its own {@link LatencyHistogramMXBean}.
+ */
+public interface MetricsMXBean {
+
+    Map<String, Long> getGauges();
+
+    String getSnapshot();
+}
@@ -0,0 +1,32 @@
+package com.hyperadvanced.webscript;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Thrown by {@link FunctionResolver#resolveAll} when some of the signatures could not be resolved. The functions that
+ * were resolved are still available, from {@link #getResolved}, and the failure for each of the others from
+ * {@link #getFailures}, so one broken function does not cost the rest of the batch.
+ */
+public class PartialResolutionException extends FunctionResolutionException {
+
+    private final Map<FunctionSignature, Function<?, ?>> resolved;
+    private final Map<FunctionSignature, FunctionResolutionException> failures;
+
+    public PartialResolutionException(Map<FunctionSignature, Function<?, ?>> resolved,
+                                      Map<FunctionSignature, FunctionResolutionException> failures) {
+        super(String.format("%d of %d functions could not be resolved", failures.size(), failures.size() + resolved.size()),
+                failures.values().iterator().next(), failures.keySet().iterator().next().getIdentifier());
+        this.resolved = Collections.unmodifiableMap(resolved);
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public Map<FunctionSignature, Function<?, ?>> getResolved() {
+        return resolved;
+    }
+
+    public Map<FunctionSignature, FunctionResolutionException> getFailures() {
+        return failures;
+    }
+}
@@ -0,0 +1,111 @@
+package com.hyperadvanced.webscript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable map over a fixed set of keys, laid out by a minimal perfect hash (hash and displace). Keys sharing a
+ * hash code, and buckets that find no free slots within {@link #MAX_DISPLACEMENT} tries, go to a plain overflow map.
+ */
+final class PerfectHashIndex<K, V> {
+
+    private static final int GOLDEN = 0x9E3779B9;
+    private static final int AVERAGE_BUCKET_SIZE = 2;
+    static final int MAX_DISPLACEMENT = 1 << 12;
+
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] displacements;
+    private final Map<K, V> overflow;
+
+    PerfectHashIndex(Map<? extends K, ? extends V> entries) {
+        this(entries, MAX_DISPLACEMENT);
+    }
+
+    PerfectHashIndex(Map<? extends K, ? extends V> entries, int maxDisplacement) {
+        final Map<Integer, K> byHash = new HashMap<>();
+        final Map<K, V> overflow = new HashMap<>();
+        final List<K> indexed = new ArrayList<>(entries.size());
+        for (K key : entries.keySet()) {
+            if (byHash.putIfAbsent(key.hashCode(), key) == null) indexed.add(key);
+            else overflow.put(key, entries.get(key));
+        }
+        final int n = indexed.size();
+        this.keys = new Object[n];
+        this.values = new Object[n];
+        this.displacements = new int[Math.max(1, (n + AVERAGE_BUCKET_SIZE - 1) / AVERAGE_BUCKET_SIZE)];
+
+        final List<List<K>> buckets = new ArrayList<>(displacements.length);
+        for (int i = 0; i < displacements.length; i++) buckets.add(new ArrayList<>());
+        for (K key : indexed) buckets.get(bucket(key.hashCode())).add(key);
+        final Integer[] order = new Integer[displacements.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        // Placing the largest buckets first, while the table is still empty, keeps displacements small
+        Arrays.sort(order, (a, b) -> Integer.compare(buckets.get(b).size(), buckets.get(a).size()));
+
+        final boolean[] taken = new boolean[n];
+        final int[] slots = new int[order.length == 0 ? 0 : buckets.get(order[0]).size()];
+        for (int b : order) {
+            final List<K> bucket = buckets.get(b);
+            if (bucket.isEmpty()) break;
+            int displacement = 0;
+            while (displacement < maxDisplacement && !fits(bucket, displacement, taken, slots)) displacement++;
+            if (displacement == maxDisplacement) {
+                for (K key : bucket) overflow.put(key, entries.get(key));
+                continue;
+            }
+            displacements[b] = displacement;
+            for (int i = 0; i < bucket.size(); i++) {
+                taken[slots[i]] = true;
+                keys[slots[i]] = bucket.get(i);
+                values[slots[i]] = entries.get(bucket.get(i));
+            }
+        }
+        this.overflow = overflow.isEmpty() ? null : overflow;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (keys.length == 0) return null;
+        final int hash = key.hashCode();
+        final int slot = slot(hash, displacements[bucket(hash)]);
+        final Object candidate = keys[slot];
+        if (candidate == key || candidate != null && candidate.equals(key)) {
+            return (V) values[slot];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    private boolean fits(List<K> bucket, int displacement, boolean[] taken, int[] slots) {
+        for (int i = 0; i < bucket.size(); i++) {
+            final int slot = slot(bucket.get(i).hashCode(), displacement);
+            if (taken[slot]) return false;
+            for (int j = 0; j < i; j++) if (slots[j] == slot) return false;
+            slots[i] = slot;
+        }
+        return true;
+    }
+
+    private int bucket(int hash) {
+        return Math.floorMod(mix(hash), displacements.length);
+    }
+
+    private int slot(int hash, int displacement) {
+        return Math.floorMod(mix(hash + (displacement + 1) * GOLDEN), keys.length);
+    }
+
+    /**
+     * The murmur3 finalizer.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
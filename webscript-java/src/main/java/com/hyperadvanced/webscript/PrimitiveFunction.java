@@ -0,0 +1,172 @@
+package com.hyperadvanced.webscript;
+
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Functions over primitives, which numeric functions implement so that callers can reach them without boxing.
+ */
+public interface PrimitiveFunction {
+
+    static Class<?> inputType(Class<? extends PrimitiveFunction> shape) {
+        if (shape == OfInt.class) return int.class;
+        if (shape == OfLong.class || shape == LongToDouble.class) return long.class;
+        if (shape == OfDouble.class || shape == DoubleToLong.class) return double.class;
+        throw new IllegalArgumentException("Not a primitive function shape: " + shape);
+    }
+
+    static Class<?> returnType(Class<? extends PrimitiveFunction> shape) {
+        if (shape == OfInt.class) return int.class;
+        if (shape == OfLong.class || shape == DoubleToLong.class) return long.class;
+        if (shape == OfDouble.class || shape == LongToDouble.class) return double.class;
+        throw new IllegalArgumentException("Not a primitive function shape: " + shape);
+    }
+
+    /**
+     * Adapts a function over the boxed types to a shape, boxing on every call.
+     */
+    static <F extends PrimitiveFunction> F boxing(Class<F> shape, Function<Object, Object> function) {
+        final PrimitiveFunction adapted;
+        if (shape == OfInt.class) adapted = (OfInt) input -> (Integer) function.apply(input);
+        else if (shape == OfLong.class) adapted = (OfLong) input -> (Long) function.apply(input);
+        else if (shape == OfDouble.class) adapted = (OfDouble) input -> (Double) function.apply(input);
+        else if (shape == LongToDouble.class) adapted = (LongToDouble) input -> (Double) function.apply(input);
+        else if (shape == DoubleToLong.class) adapted = (DoubleToLong) input -> (Long) function.apply(input);
+        else throw new IllegalArgumentException("Not a primitive function shape: " + shape);
+        return shape.cast(adapted);
+    }
+
+    /**
+     * Wraps a function of a shape so that each call goes through {@code around}.
+     */
+    static <F extends PrimitiveFunction> F around(Class<F> shape, F function, Around around) {
+        final PrimitiveFunction wrapped;
+        if (shape == OfInt.class) wrapped = around((OfInt) function, around);
+        else if (shape == OfLong.class) wrapped = around((OfLong) function, around);
+        else if (shape == OfDouble.class) wrapped = around((OfDouble) function, around);
+        else if (shape == LongToDouble.class) wrapped = around((LongToDouble) function, around);
+        else if (shape == DoubleToLong.class) wrapped = around((DoubleToLong) function, around);
+        else throw new IllegalArgumentException("Not a primitive function shape: " + shape);
+        return shape.cast(wrapped);
+    }
+
+    static OfInt around(OfInt function, Around around) {
+        return input -> {
+            final long start = around.start();
+            try {
+                final int result = function.applyAsInt(input);
+                around.succeeded(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                around.failed(start);
+                throw e;
+            }
+        };
+    }
+
+    static OfLong around(OfLong function, Around around) {
+        return input -> {
+            final long start = around.start();
+            try {
+                final long result = function.applyAsLong(input);
+                around.succeeded(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                around.failed(start);
+                throw e;
+            }
+        };
+    }
+
+    static OfDouble around(OfDouble function, Around around) {
+        return input -> {
+            final long start = around.start();
+            try {
+                final double result = function.applyAsDouble(input);
+                around.succeeded(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                around.failed(start);
+                throw e;
+            }
+        };
+    }
+
+    static LongToDouble around(LongToDouble function, Around around) {
+        return input -> {
+            final long start = around.start();
+            try {
+                final double result = function.applyAsDouble(input);
+                around.succeeded(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                around.failed(start);
+                throw e;
+            }
+        };
+    }
+
+    static DoubleToLong around(DoubleToLong function, Around around) {
+        return input -> {
+            final long start = around.start();
+            try {
+                final long result = function.applyAsLong(input);
+                around.succeeded(start);
+                return result;
+            } catch (RuntimeException | Error e) {
+                around.failed(start);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * Told when each call of a wrapped function starts and how it ends.
+     */
+    interface Around {
+        long start();
+
+        void succeeded(long start);
+
+        void failed(long start);
+    }
+
+    interface OfInt extends PrimitiveFunction, IntUnaryOperator, Function<Integer, Integer> {
+        @Override
+        default Integer apply(Integer input) {
+            return applyAsInt(input);
+        }
+    }
+
+    interface OfLong extends PrimitiveFunction, LongUnaryOperator, Function<Long, Long> {
+        @Override
+        default Long apply(Long input) {
+            return applyAsLong(input);
+        }
+    }
+
+    interface OfDouble extends PrimitiveFunction, DoubleUnaryOperator, Function<Double, Double> {
+        @Override
+        default Double apply(Double input) {
+            return applyAsDouble(input);
+        }
+    }
+
+    interface LongToDouble extends PrimitiveFunction, LongToDoubleFunction, Function<Long, Double> {
+        @Override
+        default Double apply(Long input) {
+            return applyAsDouble(input);
+        }
+    }
+
+    interface DoubleToLong extends PrimitiveFunction, DoubleToLongFunction, Function<Double, Long> {
+        @Override
+        default Long apply(Double input) {
+            return applyAsLong(input);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+
+/**
+ * The {@link PrimitiveFunction} counterpart of a {@link FunctionHandle}, whose function is called without boxing.
+ */
+public final class PrimitiveFunctionHandle<F extends PrimitiveFunction> {
+
+    private final URI identifier;
+    private final Class<F> shape;
+    private final Binding<F> binding;
+
+    PrimitiveFunctionHandle(Binding.Binder<F> binder, URI identifier, Class<F> shape) {
+        PrimitiveFunction.inputType(shape);
+        this.identifier = identifier;
+        this.shape = shape;
+        this.binding = new Binding<>(binder);
+    }
+
+    /**
+     * Returns the currently bound function, binding it first if necessary.
+     */
+    public F function() throws FunctionResolutionException {
+        return binding.get();
+    }
+
+    public URI getIdentifier() {
+        return identifier;
+    }
+
+    public Class<F> getShape() {
+        return shape;
+    }
+
+    void invalidate() {
+        binding.invalidate();
+    }
+}
@@ -0,0 +1,26 @@
+package com.hyperadvanced.webscript;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a function whose result depends only on its input, and which has no side effects, so that it is memoized.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Pure {
+
+    /**
+     * The maximum number of results to keep.
+     */
+    long maximumSize() default 1024;
+
+    /**
+     * How long a result is kept after it was computed, in seconds.
+     */
+    long expireAfterSeconds() default Long.MAX_VALUE;
+}
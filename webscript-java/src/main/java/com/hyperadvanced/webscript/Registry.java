@@ -1,7 +1,9 @@
 package com.hyperadvanced.webscript;
 
 import java.net.URI;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * TODO: Write Javadocs for this class.
@@ -14,4 +16,17 @@ public interface Registry {
     void registerFunction(URI identifier, Function function);
 
     Function getFunction(URI identifier);
+
+    /**
+     * Registers a listener to be called with the identifier of each function registered from now on.
+     */
+    default void addRegistrationListener(Consumer<URI> listener) {
+    }
+
+    /**
+     * @return which identifiers, when looked up, may find a function registered under the given one
+     */
+    default Predicate<URI> lookupsOf(URI registered) {
+        return registered::equals;
+    }
 }
@@ -1,5 +1,6 @@
 package com.hyperadvanced.webscript;
 
+import com.google.common.reflect.TypeToken;
 import org.boon.di.Inject;
 
 import java.net.URI;
@@ -14,19 +15,32 @@ import java.util.function.Function;
 public class RegistryLookupFunctionProvider implements FunctionProvider {
 
     @Inject Registry registry;
+    @Inject TypeConverterFactory converterFactory;
 
     @Override
-    public <T, R> Function<T, R> get(URI identifier, Class<T> inputType, Class<R> returnType) {
-//        final Function<?, ?> function = registry.getFunction(identifier);
-//        if (function.inputType().equals(inputType) && function.returnType().equals(returnType)) {
-//            //noinspection unchecked
-//            return (Function<T, R>) function;
-//        }
-        throw new UnsupportedOperationException("Conversion of function input/return types not yet supported");
+    @SuppressWarnings("unchecked")
+    public <T, R> Function<T, R> get(URI identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException {
+        final Function<Object, Object> function = registry.getFunction(identifier);
+        if (function == null) throw new FunctionNotFoundException("No function registered", identifier);
+        final TypeToken<? extends Function> typeToken = TypeToken.of(function.getClass());
+        final TypeToken<?> functionInputType = typeToken.resolveType(Function.class.getTypeParameters()[0]);
+        final TypeToken<?> functionReturnType = typeToken.resolveType(Function.class.getTypeParameters()[1]);
+        if (functionInputType.isAssignableFrom(inputType) && TypeToken.of(returnType).isAssignableFrom(functionReturnType)) {
+            return (Function<T, R>) function;
+        }
+        final Function<T, ?> input;
+        final Function<Object, R> output;
+        try {
+            input = (Function<T, ?>) converterFactory.converter(TypeToken.of(inputType), functionInputType);
+            output = (Function<Object, R>) converterFactory.converter(functionReturnType, TypeToken.of(returnType));
+        } catch (UnsupportedOperationException e) {
+            throw new FunctionResolutionException(e.getMessage(), e, identifier);
+        }
+        return input.andThen(function).andThen(output);
     }
 
     @Override
-    public <T, R> Function<T, R> get(String identifier, Class<T> inputType, Class<R> returnType) {
+    public <T, R> Function<T, R> get(String identifier, Class<T> inputType, Class<R> returnType) throws FunctionResolutionException {
         return get(URI.create(identifier), inputType, returnType);
     }
 }
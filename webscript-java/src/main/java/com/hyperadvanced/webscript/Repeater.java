@@ -11,6 +11,7 @@ import static com.google.common.collect.Iterables.limit;
  *
  * @author Ewan
  */
+@Pure
 public class Repeater implements Function<Repeater.Input,Repeater.Output> {
 
     @Override
@@ -1,43 +1,70 @@
 package com.hyperadvanced.webscript;
 
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
 /**
- * TODO: Write Javadocs for this class.
+ * Runs functions against JSON input, writing JSON output.
  * Created: 21/09/2015 22:22
  *
  * @author Ewan
  */
 public class Runner {
 
-//    public <T, R> String run(Function<T, R> function, String jsonInput) throws Exception {
-//        final ObjectMapper mapper = JsonFactory.createUseJSONDates();
-//        final T input = mapper.readValue(jsonInput, function.inputType());
-//        final R result = function.apply(input);
-//        return mapper.writeValueAsString(result);
-//    }
-
-//    public static void main(String[] args) throws Exception {
-//        final Map<URI, Function<?, ?>> functions = map(
-//                URI.create("repeater"), new Repeater(),
-//                URI.create("upperAndEcho"), new UserUpperAndEcho()
-//        );
-//
-//        final Context context = context(objects(
-//                new MapFunctionResolver(functions),
-//                new ClassCastFunctionTypeConverter()));
-//        context.add(objects(new InjectionHandlingFunctionProvider(context)));
-//
-//        final Runner runner = new Runner();
-//        final UserUpperAndEcho.User user = new UserUpperAndEcho.User();
-//        user.name = "ewan";
-//        final ObjectMapper mapper = JsonFactory.createUseJSONDates();
-//        final String input = mapper.toJson(user);
-//        System.out.println("input = " + input);
-//
-//        final FunctionProvider provider = context.get(FunctionProvider.class);
-//        final Function<UserUpperAndEcho.User, UserUpperAndEcho.User> upperAndEcho =
-//                provider.get("upperAndEcho", UserUpperAndEcho.User.class, UserUpperAndEcho.User.class);
-//        final String result = runner.run(upperAndEcho, input);
-//        System.out.println("result = " + result);
-//    }
+    private final JsonCodec codec = new JsonCodec();
+    private final int batchSize;
+
+    public Runner() {
+        this(1_000);
+    }
+
+    public Runner(int batchSize) {
+        if (batchSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        this.batchSize = batchSize;
+    }
+
+    public <T, R> void run(Function<T, R> function, InputStream jsonInput, OutputStream jsonOutput) throws Exception {
+        final T input = codec.read(jsonInput, function.inputType());
+        final R result = function.apply(input);
+        codec.write(result, jsonOutput);
+        jsonOutput.flush();
+    }
+
+    /**
+     * Applies the function to the lines of the input a chunk at a time, returning the number of lines processed.
+     */
+    public <T, R> long runBatch(Function<T, R> function, InputStream ndjsonInput, OutputStream ndjsonOutput) throws Exception {
+        return runLines(function::applyBatch, function.inputType(), ndjsonInput, ndjsonOutput);
+    }
+
+    public <T, R> long runBatch(java.util.function.Function<T, R> function, Class<T> inputType, InputStream ndjsonInput, OutputStream ndjsonOutput) throws Exception {
+        return runLines(BatchFunction.of(function)::applyBatch, inputType, ndjsonInput, ndjsonOutput);
+    }
+
+    private <T, R> long runLines(Invocation<T, R> function, Class<T> inputType, InputStream ndjsonInput, OutputStream ndjsonOutput) throws Exception {
+        final JsonCodec.Lines lines = codec.lines(ndjsonInput);
+        final OutputStream out = new BufferedOutputStream(ndjsonOutput);
+        final List<T> chunk = new ArrayList<>(batchSize);
+        long count = 0;
+        boolean more;
+        do {
+            more = lines.hasNext();
+            if (more) chunk.add(lines.next(inputType));
+            if (!chunk.isEmpty() && (chunk.size() == batchSize || !more || !lines.ready())) {
+                for (R result : function.apply(chunk)) codec.writeLine(result, out);
+                out.flush();
+                count += chunk.size();
+                chunk.clear();
+            }
+        } while (more);
+        out.flush();
+        return count;
+    }
 
+    private interface Invocation<T, R> {
+        List<R> apply(List<T> inputs) throws Exception;
+    }
 }
@@ -4,7 +4,8 @@ import java.util.List;
 import java.util.function.Function;
 
 /**
- * TODO: Write Javadocs for this class.
+ * A builder for named services. Not implemented yet: nothing resolves a service by name, so every provider built here
+ * returns a {@code null} function, and a {@link BatchingServiceProvider} has to be given its list service directly.
  * Created: 01/10/2015 08:53
  *
  * @author Ewan
@@ -60,7 +61,7 @@ public final class Service {
         }
 
         public <OUT> ObjectAcceptingListReturningService<IN, OUT> returningList(Class<OUT> outClass) {
-            return new ObjectAcceptingListReturningService(name, inClass, outClass);
+            return new ObjectAcceptingListReturningService<>(name, inClass, outClass);
         }
     }
 
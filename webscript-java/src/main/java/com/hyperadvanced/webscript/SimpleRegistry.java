@@ -1,7 +1,10 @@
 package com.hyperadvanced.webscript;
 
 import java.net.URI;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -13,10 +16,17 @@ import java.util.function.Function;
 public class SimpleRegistry implements Registry {
 
     private final ConcurrentHashMap<URI, Function> store = new ConcurrentHashMap<>();
+    private final List<Consumer<URI>> listeners = new CopyOnWriteArrayList<>();
 
     @Override
     public void registerFunction(URI identifier, Function function) {
         store.put(identifier, function);
+        for (Consumer<URI> listener : listeners) listener.accept(identifier);
+    }
+
+    @Override
+    public void addRegistrationListener(Consumer<URI> listener) {
+        listeners.add(listener);
     }
 
     @Override
@@ -0,0 +1,122 @@
+package com.hyperadvanced.webscript;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles Java source held in memory to bytecode held in memory, using the system Java compiler.
+ */
+final class SourceCompiler {
+
+    private static final Pattern PACKAGE = Pattern.compile("^\\s*package\\s+([\\w.]+)\\s*;", Pattern.MULTILINE);
+    private static final Pattern PUBLIC_TYPE = Pattern.compile(
+            "public\\s+(?:(?:final|abstract|strictfp)\\s+)*(?:class|interface|enum)\\s+(\\w+)");
+
+    private final JavaCompiler compiler;
+
+    SourceCompiler() {
+        compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) throw new IllegalStateException("No system Java compiler available; run on a JDK");
+    }
+
+    static String className(String source) {
+        final Matcher type = PUBLIC_TYPE.matcher(source);
+        if (!type.find()) throw new IllegalArgumentException("Source does not declare a public top-level type");
+        final Matcher pkg = PACKAGE.matcher(source);
+        return pkg.find() ? pkg.group(1) + "." + type.group(1) : type.group(1);
+    }
+
+    /**
+     * Compiles the given sources together, returning the bytecode of every class produced, keyed by binary name.
+     */
+    Map<String, byte[]> compile(Collection<String> sources) throws CompilationException {
+        final Map<String, byte[]> classes = new HashMap<>();
+        for (Map<String, byte[]> unit : compileUnits(new ArrayList<>(sources))) classes.putAll(unit);
+        return classes;
+    }
+
+    /**
+     * Compiles the given sources together in a single compiler task, returning the bytecode produced from each source.
+     */
+    List<Map<String, byte[]>> compileUnits(List<String> sources) throws CompilationException {
+        final List<JavaFileObject> units = new ArrayList<>(sources.size());
+        final Map<JavaFileObject, Map<String, ByteArrayOutputStream>> output = new HashMap<>();
+        for (String source : sources) {
+            final JavaFileObject unit = new StringSource(className(source), source);
+            units.add(unit);
+            output.put(unit, new HashMap<>());
+        }
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, null, null)) {
+            final JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(standard) {
+                @Override
+                public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+                    final Map<String, ByteArrayOutputStream> unitOutput = output.get(sibling);
+                    if (unitOutput == null) throw new IllegalStateException("Output for unknown source " + sibling);
+                    return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+                        @Override
+                        public OutputStream openOutputStream() {
+                            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                            synchronized (unitOutput) {
+                                unitOutput.put(className, bytes);
+                            }
+                            return bytes;
+                        }
+                    };
+                }
+            };
+            final Boolean success = compiler.getTask(null, fileManager, diagnostics, null, null, units).call();
+            if (!success) throw new CompilationException("Compilation failed", errors(diagnostics));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not close compiler file manager", e);
+        }
+        final List<Map<String, byte[]>> classes = new ArrayList<>(units.size());
+        for (JavaFileObject unit : units) {
+            final Map<String, byte[]> unitClasses = new HashMap<>();
+            output.get(unit).forEach((name, bytes) -> unitClasses.put(name, bytes.toByteArray()));
+            classes.add(unitClasses);
+        }
+        return classes;
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        final List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic);
+        }
+        return errors;
+    }
+
+    private static final class StringSource extends SimpleJavaFileObject {
+        private final String source;
+
+        private StringSource(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Maps request paths to function identifiers using patterns such as {@code /v1/{fn}/**} mapped to
+ * {@code fn:{fn}/{**}}. When several patterns match, the most specific wins.
+ */
+public class TrieUriMapper implements UriMapper {
+
+    private final Map<String, Route> patterns = new LinkedHashMap<>();
+    private volatile Node root = new Node();
+
+    @Override
+    public URI apply(URI uri) {
+        final String path = uri.getRawPath();
+        return path == null ? null : lookup(root, path);
+    }
+
+    public void addMapping(String pattern, String target) {
+        addMappings(Collections.singletonMap(pattern, target));
+    }
+
+    /**
+     * Adds mappings, replacing the target of any pattern already mapped.
+     */
+    public synchronized void addMappings(Map<String, String> mappings) {
+        final List<Route> routes = routes(mappings);
+        for (Route route : routes) {
+            patterns.put(route.pattern, route);
+            root.insert(route);
+        }
+    }
+
+    public synchronized void removeMapping(String pattern) {
+        if (patterns.remove(pattern) != null) rebuild();
+    }
+
+    public synchronized void setMappings(Map<String, String> mappings) {
+        final List<Route> routes = routes(mappings);
+        patterns.clear();
+        for (Route route : routes) patterns.put(route.pattern, route);
+        rebuild();
+    }
+
+    public synchronized Map<String, String> getMappings() {
+        final Map<String, String> mappings = new LinkedHashMap<>();
+        for (Route route : patterns.values()) mappings.put(route.pattern, route.template);
+        return Collections.unmodifiableMap(mappings);
+    }
+
+    private static List<Route> routes(Map<String, String> mappings) {
+        final List<Route> routes = new ArrayList<>(mappings.size());
+        for (Map.Entry<String, String> mapping : mappings.entrySet()) routes.add(new Route(mapping.getKey(), mapping.getValue()));
+        return routes;
+    }
+
+    private void rebuild() {
+        final Node rebuilt = new Node();
+        for (Route route : patterns.values()) rebuilt.insert(route);
+        root = rebuilt;
+    }
+
+    private static URI lookup(Node root, String path) {
+        final int start = path.startsWith("/") ? 1 : 0;
+        int end = path.length();
+        if (end > start && path.charAt(end - 1) == '/') end--;
+        final int[] remainderStart = new int[1];
+        final Route route = find(root, path, start < end ? start : end + 1, end, remainderStart);
+        return route == null ? null : route.target(path, start, end, remainderStart[0]);
+    }
+
+    /**
+     * Finds the most specific route below a node for the segments of the path from {@code from}.
+     */
+    private static Route find(Node node, String path, int from, int end, int[] remainderStart) {
+        if (from > end) {
+            if (node.terminal != null) return node.terminal;
+            remainderStart[0] = end;
+            return node.remainder;
+        }
+        int slash = path.indexOf('/', from);
+        if (slash < 0 || slash > end) slash = end;
+        final int next = slash == end ? end + 1 : slash + 1;
+        final Node literal = node.literals.get(path.substring(from, slash));
+        if (literal != null) {
+            final Route route = find(literal, path, next, end, remainderStart);
+            if (route != null) return route;
+        }
+        final Node wildcard = node.wildcard;
+        if (wildcard != null) {
+            final Route route = find(wildcard, path, next, end, remainderStart);
+            if (route != null) return route;
+        }
+        remainderStart[0] = from;
+        return node.remainder;
+    }
+
+    private static final class Node {
+        private final ConcurrentMap<String, Node> literals = new ConcurrentHashMap<>();
+        private volatile Node wildcard;
+        private volatile Route terminal;
+        private volatile Route remainder;
+
+        private void insert(Route route) {
+            Node node = this;
+            for (int i = 0; i < route.segments.length; i++) {
+                switch (route.kinds[i]) {
+                    case Route.LITERAL:
+                        node = node.literals.computeIfAbsent(route.segments[i], s -> new Node());
+                        break;
+                    case Route.SINGLE:
+                        if (node.wildcard == null) node.wildcard = new Node();
+                        node = node.wildcard;
+                        break;
+                    default:
+                        if (route.replaces(node.remainder)) node.remainder = route;
+                        return;
+                }
+            }
+            if (route.replaces(node.terminal)) node.terminal = route;
+        }
+    }
+
+    private static final class Route {
+        private static final int LITERAL = 0;
+        private static final int SINGLE = 1;
+        private static final int REMAINDER = 2;
+        private static final String REMAINDER_NAME = "**";
+
+        private final String pattern;
+        private final String template;
+        private final String[] segments;
+        private final int[] kinds;
+        private final List<String> target = new ArrayList<>();
+        private final List<Integer> references = new ArrayList<>();
+        private URI constant;
+
+        private Route(String pattern, String target) {
+            this.pattern = pattern;
+            this.template = target;
+            final String path = pattern.startsWith("/") ? pattern.substring(1) : pattern;
+            final String trimmed = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+            this.segments = trimmed.isEmpty() ? new String[0] : trimmed.split("/", -1);
+            this.kinds = new int[segments.length];
+            final Map<String, Integer> variables = new HashMap<>();
+            for (int i = 0; i < segments.length; i++) {
+                final String segment = segments[i];
+                if (segment.equals(REMAINDER_NAME)) {
+                    if (i != segments.length - 1) throw invalid("'**' may only be the last segment");
+                    kinds[i] = REMAINDER;
+                    variables.put(REMAINDER_NAME, -1);
+                } else if (segment.equals("*")) {
+                    kinds[i] = SINGLE;
+                } else if (segment.startsWith("{") && segment.endsWith("}")) {
+                    kinds[i] = SINGLE;
+                    if (variables.put(segment.substring(1, segment.length() - 1), i) != null) {
+                        throw invalid("variable " + segment + " is used twice");
+                    }
+                } else if (segment.contains("{") || segment.contains("}") || segment.contains("*")) {
+                    throw invalid("'" + segment + "' must be a whole segment");
+                } else {
+                    kinds[i] = LITERAL;
+                }
+            }
+            parseTarget(target, variables);
+            if (references.isEmpty()) {
+                try {
+                    this.constant = new URI(target);
+                } catch (URISyntaxException e) {
+                    throw invalid("target " + target + " is not a valid URI");
+                }
+            }
+        }
+
+        private void parseTarget(String template, Map<String, Integer> variables) {
+            int from = 0;
+            while (true) {
+                final int open = template.indexOf('{', from);
+                if (open < 0) break;
+                final int close = template.indexOf('}', open);
+                if (close < 0) throw invalid("unclosed '{' in target " + template);
+                final Integer index = variables.get(template.substring(open + 1, close));
+                if (index == null) throw invalid("target " + template + " refers to " + template.substring(open, close + 1) + ", which the pattern does not capture");
+                target.add(template.substring(from, open));
+                references.add(index);
+                from = close + 1;
+            }
+            target.add(template.substring(from));
+        }
+
+        private URI target(String path, int start, int end, int remainderStart) {
+            if (constant != null) return constant;
+            final StringBuilder uri = new StringBuilder(target.get(0));
+            for (int i = 0; i < references.size(); i++) {
+                final int index = references.get(i);
+                if (index < 0) uri.append(path, remainderStart, end);
+                else appendSegment(uri, path, start, end, index);
+                uri.append(target.get(i + 1));
+            }
+            try {
+                return new URI(uri.toString());
+            } catch (URISyntaxException e) {
+                // The captured segments do not make a valid identifier, so nothing is mapped to this path
+                return null;
+            }
+        }
+
+        private static void appendSegment(StringBuilder uri, String path, int start, int end, int index) {
+            int from = start;
+            for (int i = 0; i < index; i++) from = path.indexOf('/', from) + 1;
+            int to = path.indexOf('/', from);
+            if (to < 0 || to > end) to = end;
+            uri.append(path, from, to);
+        }
+
+        private boolean replaces(Route existing) {
+            return existing == null || existing.pattern.equals(pattern);
+        }
+
+        private IllegalArgumentException invalid(String reason) {
+            return new IllegalArgumentException(String.format("Invalid pattern %s: %s", pattern, reason));
+        }
+    }
+}
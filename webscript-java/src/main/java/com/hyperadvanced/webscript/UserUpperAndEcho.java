@@ -11,10 +11,12 @@ import org.boon.di.Inject;
 public class UserUpperAndEcho implements Function<UserUpperAndEcho.User,UserUpperAndEcho.User> {
 
     @Inject FunctionProvider function;
+    private volatile FunctionHandle<Repeater.Input, Repeater.Output> repeater;
 
     @Override
     public User apply(User user) throws Exception {
-        final Function<Repeater.Input, Repeater.Output> repeater = function.get("repeater", Repeater.Input.class, Repeater.Output.class);
+        FunctionHandle<Repeater.Input, Repeater.Output> repeater = this.repeater;
+        if (repeater == null) this.repeater = repeater = function.handle("repeater", Repeater.Input.class, Repeater.Output.class);
         final Repeater.Input repeaterInput = new Repeater.Input();
         repeaterInput.value = user.name.toUpperCase();
         repeaterInput.times = 2;
@@ -0,0 +1,82 @@
+package com.hyperadvanced.webscript;
+
+/**
+ * A {@code major.minor.patch} version number, ordered numerically. Missing trailing components are zero, so
+ * {@code 1.2} is {@code 1.2.0}.
+ */
+public final class Version implements Comparable<Version> {
+
+    public static final Version ZERO = new Version(0, 0, 0);
+
+    private final int major;
+    private final int minor;
+    private final int patch;
+
+    public Version(int major, int minor, int patch) {
+        if (major < 0 || minor < 0 || patch < 0) throw new IllegalArgumentException("Version components must not be negative");
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+    }
+
+    public static Version parse(String version) {
+        final String[] parts = version.trim().split("\\.", -1);
+        if (parts.length > 3) throw new IllegalArgumentException("Invalid version: " + version);
+        try {
+            return new Version(Integer.parseInt(parts[0]),
+                    parts.length > 1 ? Integer.parseInt(parts[1]) : 0,
+                    parts.length > 2 ? Integer.parseInt(parts[2]) : 0);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid version: " + version, e);
+        }
+    }
+
+    public int getMajor() {
+        return major;
+    }
+
+    public int getMinor() {
+        return minor;
+    }
+
+    public int getPatch() {
+        return patch;
+    }
+
+    Version nextMajor() {
+        return new Version(major + 1, 0, 0);
+    }
+
+    Version nextMinor() {
+        return new Version(major, minor + 1, 0);
+    }
+
+    Version nextPatch() {
+        return new Version(major, minor, patch + 1);
+    }
+
+    @Override
+    public int compareTo(Version that) {
+        if (major != that.major) return Integer.compare(major, that.major);
+        if (minor != that.minor) return Integer.compare(minor, that.minor);
+        return Integer.compare(patch, that.patch);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Version that = (Version) o;
+        return major == that.major && minor == that.minor && patch == that.patch;
+    }
+
+    @Override
+    public int hashCode() {
+        return (major * 31 + minor) * 31 + patch;
+    }
+
+    @Override
+    public String toString() {
+        return major + "." + minor + "." + patch;
+    }
+}
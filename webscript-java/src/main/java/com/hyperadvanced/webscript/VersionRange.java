@@ -0,0 +1,86 @@
+package com.hyperadvanced.webscript;
+
+import java.util.Arrays;
+
+/**
+ * A half-open range of {@link Version}s, written as in npm-style semantic versioning ({@code 1.x}, {@code ^1.2.3},
+ * {@code ~1.2.3}, {@code >=1.2.0 <2.0.0}, {@code *}).
+ */
+public final class VersionRange {
+
+    public static final VersionRange ANY = new VersionRange(Version.ZERO, null);
+
+    private final Version lower;
+    private final Version upper;
+
+    public VersionRange(Version lower, Version upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    public static VersionRange exactly(Version version) {
+        return new VersionRange(version, version.nextPatch());
+    }
+
+    public static VersionRange parse(String range) {
+        final String trimmed = range.trim();
+        if (trimmed.isEmpty() || trimmed.equals("*") || trimmed.equals("x")) return ANY;
+        try {
+            if (trimmed.startsWith(">") || trimmed.startsWith("<")) return comparators(trimmed);
+            if (trimmed.startsWith("^")) return caret(Version.parse(trimmed.substring(1)));
+            if (trimmed.startsWith("~")) {
+                final Version version = Version.parse(trimmed.substring(1));
+                return new VersionRange(version, version.nextMinor());
+            }
+            final String[] parts = trimmed.split("\\.", -1);
+            int given = parts.length;
+            while (given > 0 && (parts[given - 1].equals("x") || parts[given - 1].equals("*"))) given--;
+            if (given == 0) return ANY;
+            final Version version = Version.parse(String.join(".", Arrays.copyOf(parts, given)));
+            if (given == 1) return new VersionRange(version, version.nextMajor());
+            if (given == 2) return new VersionRange(version, version.nextMinor());
+            return exactly(version);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid version range: " + range, e);
+        }
+    }
+
+    private static VersionRange caret(Version version) {
+        if (version.getMajor() > 0) return new VersionRange(version, version.nextMajor());
+        if (version.getMinor() > 0) return new VersionRange(version, version.nextMinor());
+        return new VersionRange(version, version.nextPatch());
+    }
+
+    private static VersionRange comparators(String range) {
+        Version lower = Version.ZERO;
+        Version upper = null;
+        for (String comparator : range.split("\\s+")) {
+            if (comparator.startsWith(">=")) lower = Version.parse(comparator.substring(2));
+            else if (comparator.startsWith(">")) lower = Version.parse(comparator.substring(1)).nextPatch();
+            else if (comparator.startsWith("<=")) upper = Version.parse(comparator.substring(2)).nextPatch();
+            else if (comparator.startsWith("<")) upper = Version.parse(comparator.substring(1));
+            else throw new IllegalArgumentException("Invalid comparator: " + comparator);
+        }
+        return new VersionRange(lower, upper);
+    }
+
+    public Version getLower() {
+        return lower;
+    }
+
+    /**
+     * @return the exclusive upper bound, or {@code null} if the range is unbounded above
+     */
+    public Version getUpper() {
+        return upper;
+    }
+
+    public boolean contains(Version version) {
+        return version.compareTo(lower) >= 0 && (upper == null || version.compareTo(upper) < 0);
+    }
+
+    @Override
+    public String toString() {
+        return upper == null ? ">=" + lower : ">=" + lower + " <" + upper;
+    }
+}
@@ -0,0 +1,162 @@
+package com.hyperadvanced.webscript;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Registry} that keeps every version of each function, under identifiers of the form
+ * {@code ns:name:version}.
+ */
+public class VersionedRegistry implements Registry {
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyMap());
+    private final List<Consumer<URI>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void registerFunction(URI identifier, Function function) {
+        registerFunctions(Collections.singletonMap(identifier, function));
+    }
+
+    public synchronized void registerFunctions(Map<URI, Function> functions) {
+        final Map<String, NavigableMap<Version, Function>> index = new HashMap<>(snapshot.index);
+        final Map<String, NavigableMap<Version, Function>> copied = new HashMap<>();
+        for (Map.Entry<URI, Function> registration : functions.entrySet()) {
+            final Identifier identifier = Identifier.parse(registration.getKey());
+            if (identifier.version == null) {
+                throw new IllegalArgumentException("Functions must be registered under an exact version: " + registration.getKey());
+            }
+            final String key = key(identifier.namespace, identifier.name);
+            NavigableMap<Version, Function> versions = copied.get(key);
+            if (versions == null) {
+                final NavigableMap<Version, Function> existing = index.get(key);
+                versions = existing == null ? new TreeMap<>() : new TreeMap<>(existing);
+                copied.put(key, versions);
+            }
+            versions.put(identifier.version, registration.getValue());
+        }
+        for (Map.Entry<String, NavigableMap<Version, Function>> entry : copied.entrySet()) {
+            index.put(entry.getKey(), Collections.unmodifiableNavigableMap(entry.getValue()));
+        }
+        snapshot = new Snapshot(Collections.unmodifiableMap(index));
+        for (URI identifier : functions.keySet()) {
+            for (Consumer<URI> listener : listeners) listener.accept(identifier);
+        }
+    }
+
+    @Override
+    public void addRegistrationListener(Consumer<URI> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public Predicate<URI> lookupsOf(URI registered) {
+        final Identifier function = Identifier.parse(registered);
+        return identifier -> {
+            if (!function.namespace.equals(identifier.getScheme())) return false;
+            final String rest = identifier.getSchemeSpecificPart();
+            if (rest == null) return false;
+            final int colon = rest.indexOf(':');
+            return function.name.equals(colon < 0 ? rest : rest.substring(0, colon));
+        };
+    }
+
+    @Override
+    public Function getFunction(URI identifier) {
+        return snapshot.getFunction(identifier);
+    }
+
+    public Function getFunction(String namespace, String name, VersionRange range) {
+        return snapshot.getFunction(namespace, name, range);
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    private static String key(String namespace, String name) {
+        return namespace + ':' + name;
+    }
+
+    public static final class Snapshot {
+        private final Map<String, NavigableMap<Version, Function>> index;
+
+        private Snapshot(Map<String, NavigableMap<Version, Function>> index) {
+            this.index = index;
+        }
+
+        public Function getFunction(URI identifier) {
+            final Identifier parsed = Identifier.parse(identifier);
+            return getFunction(parsed.namespace, parsed.name, parsed.range);
+        }
+
+        /**
+         * @return the latest version of the function within the range, or {@code null} if there is none
+         */
+        public Function getFunction(String namespace, String name, VersionRange range) {
+            final Map.Entry<Version, Function> latest = latest(namespace, name, range);
+            return latest == null ? null : latest.getValue();
+        }
+
+        public Version latestVersion(String namespace, String name, VersionRange range) {
+            final Map.Entry<Version, Function> latest = latest(namespace, name, range);
+            return latest == null ? null : latest.getKey();
+        }
+
+        public NavigableSet<Version> versions(String namespace, String name) {
+            final NavigableMap<Version, Function> versions = index.get(key(namespace, name));
+            return versions == null ? Collections.emptyNavigableSet() : versions.navigableKeySet();
+        }
+
+        private Map.Entry<Version, Function> latest(String namespace, String name, VersionRange range) {
+            final NavigableMap<Version, Function> versions = index.get(key(namespace, name));
+            if (versions == null) return null;
+            final Map.Entry<Version, Function> latest = range.getUpper() == null
+                    ? versions.lastEntry() : versions.lowerEntry(range.getUpper());
+            return latest == null || latest.getKey().compareTo(range.getLower()) < 0 ? null : latest;
+        }
+    }
+
+    private static final class Identifier {
+        private final String namespace;
+        private final String name;
+        private final Version version;
+        private final VersionRange range;
+
+        private Identifier(String namespace, String name, Version version, VersionRange range) {
+            this.namespace = namespace;
+            this.name = name;
+            this.version = version;
+            this.range = range;
+        }
+
+        private static Identifier parse(URI identifier) {
+            final String namespace = identifier.getScheme();
+            final String rest = identifier.getSchemeSpecificPart();
+            if (namespace == null || rest == null || rest.isEmpty()) {
+                throw new IllegalArgumentException("Expected an identifier of the form ns:name:version, got " + identifier);
+            }
+            final int colon = rest.indexOf(':');
+            if (colon < 0) return new Identifier(namespace, rest, null, VersionRange.ANY);
+            final String name = rest.substring(0, colon);
+            final String version = rest.substring(colon + 1);
+            Version exact;
+            try {
+                exact = Version.parse(version);
+            } catch (IllegalArgumentException e) {
+                exact = null;
+            }
+            return new Identifier(namespace, name, exact,
+                    exact != null && version.split("\\.").length == 3 ? VersionRange.exactly(exact) : VersionRange.parse(version));
+        }
+    }
+}
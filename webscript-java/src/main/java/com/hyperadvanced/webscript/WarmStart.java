@@ -0,0 +1,256 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records which functions a {@link FunctionServer} is asked for, with a few sample inputs, to a manifest, and warms
+ * them (optionally replaying the samples) before the server takes traffic on the next start.
+ */
+public final class WarmStart {
+
+    private static final int SAMPLES_PER_FUNCTION = 4;
+    private static final int MAX_SAMPLE_BYTES = 64 * 1024;
+
+    private final Path manifest;
+    private final long periodNanos;
+    private final int replayFunctions;
+    private final int replayIterations;
+    private final JsonCodec codec = new JsonCodec();
+    private final ConcurrentMap<URI, Recording> recordings = new ConcurrentHashMap<>();
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private ScheduledExecutorService writer;
+
+    public WarmStart(Path manifest) {
+        this(manifest, 1, TimeUnit.MINUTES, 0, 0);
+    }
+
+    public WarmStart(Path manifest, long period, TimeUnit unit, int replayFunctions, int replayIterations) {
+        this.manifest = manifest;
+        this.periodNanos = unit.toNanos(period);
+        this.replayFunctions = replayFunctions;
+        this.replayIterations = replayIterations;
+    }
+
+    /**
+     * Warms every function in the manifest; failures, including unreadable lines, are counted in {@link #failed()}.
+     */
+    public void warm(FunctionServer server) throws IOException, InterruptedException {
+        final List<Recording> hottest = load();
+        final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            final Thread thread = new Thread(runnable, "webscript-warm-start");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            final List<Future<?>> warming = new ArrayList<>(hottest.size());
+            for (int i = 0; i < hottest.size(); i++) {
+                final Recording recording = hottest.get(i);
+                final int iterations = i < replayFunctions ? replayIterations : 0;
+                warming.add(executor.submit(() -> {
+                    server.warm(recording.identifier, recording.inherited(), iterations);
+                    return null;
+                }));
+            }
+            for (Future<?> future : warming) {
+                try {
+                    future.get();
+                    warmed.incrementAndGet();
+                } catch (ExecutionException e) {
+                    failed.incrementAndGet();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public synchronized void start() {
+        if (writer != null) return;
+        writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "webscript-warm-start-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(() -> {
+            try {
+                write();
+            } catch (IOException e) {
+                // Try again next period; the previous manifest is still in place
+            }
+        }, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized void stop() throws IOException {
+        if (writer == null) return;
+        writer.shutdownNow();
+        writer = null;
+        write();
+    }
+
+    /**
+     * Writes the manifest, replacing the previous one atomically.
+     */
+    public void write() throws IOException {
+        final List<Recording> busiest = new ArrayList<>(recordings.values());
+        final Map<Recording, Long> weights = new HashMap<>();
+        for (Recording recording : busiest) weights.put(recording, recording.weight());
+        busiest.sort(Comparator.comparing(weights::get, Comparator.reverseOrder()));
+        final Path parent = manifest.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        final Path tmp = Files.createTempFile(parent, manifest.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                for (Recording recording : busiest) {
+                    final long weight = weights.get(recording);
+                    if (weight == 0) continue;
+                    final Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("identifier", recording.identifier.toString());
+                    line.put("weight", weight);
+                    final List<String> samples = new ArrayList<>();
+                    for (byte[] sample : recording.samples()) samples.add(new String(sample, StandardCharsets.UTF_8));
+                    line.put("samples", samples);
+                    codec.writeLine(line, out);
+                }
+            }
+            Files.move(tmp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    Recording recording(URI identifier) {
+        return recordings.computeIfAbsent(identifier, id -> new Recording(id, 0, Collections.emptyList()));
+    }
+
+    public int warmed() {
+        return warmed.get();
+    }
+
+    public int failed() {
+        return failed.get();
+    }
+
+    /**
+     * Reads the manifest at half weight, busiest first.
+     */
+    private List<Recording> load() throws IOException {
+        final List<Recording> loaded = new ArrayList<>();
+        try (InputStream in = Files.newInputStream(manifest)) {
+            final JsonCodec.Lines lines = codec.lines(in);
+            while (lines.hasNext()) {
+                final Recording recording;
+                try {
+                    recording = recording(lines.next(Map.class));
+                } catch (IllegalArgumentException e) {
+                    failed.incrementAndGet();
+                    continue;
+                }
+                if (recordings.putIfAbsent(recording.identifier, recording) == null) loaded.add(recording);
+            }
+        } catch (NoSuchFileException e) {
+            return Collections.emptyList();
+        }
+        loaded.sort(Comparator.comparingLong((Recording r) -> r.inheritedWeight).reversed());
+        return loaded;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the line is not an object with an identifier and a weight
+     */
+    private static Recording recording(Map<?, ?> line) {
+        if (line == null) throw new IllegalArgumentException("Expected a recording, got null");
+        final Object identifier = line.get("identifier");
+        final Object weight = line.get("weight");
+        if (!(identifier instanceof CharSequence) || !(weight instanceof Number)) {
+            throw new IllegalArgumentException("Expected an identifier and a weight, got " + line);
+        }
+        final List<byte[]> samples = new ArrayList<>();
+        final Object recorded = line.get("samples");
+        if (recorded instanceof List) {
+            for (Object sample : (List<?>) recorded) samples.add(String.valueOf(sample).getBytes(StandardCharsets.UTF_8));
+        }
+        return new Recording(URI.create(identifier.toString()), ((Number) weight).longValue() / 2, samples);
+    }
+
+    static final class Recording {
+        private final URI identifier;
+        private final long inheritedWeight;
+        private final List<byte[]> inheritedSamples;
+        private final LongAdder calls = new LongAdder();
+        private final AtomicInteger sampled = new AtomicInteger();
+        private final AtomicReferenceArray<byte[]> samples = new AtomicReferenceArray<>(SAMPLES_PER_FUNCTION);
+
+        private Recording(URI identifier, long inheritedWeight, List<byte[]> inheritedSamples) {
+            this.identifier = identifier;
+            this.inheritedWeight = inheritedWeight;
+            this.inheritedSamples = inheritedSamples;
+        }
+
+        void call() {
+            calls.increment();
+        }
+
+        boolean wantsSample() {
+            return sampled.get() < SAMPLES_PER_FUNCTION;
+        }
+
+        /**
+         * Takes the input as a sample, reading no more than a sample may hold; an oversized input still uses up a sample.
+         */
+        InputStream sample(InputStream input) throws IOException {
+            final byte[] head = ByteStreams.toByteArray(ByteStreams.limit(input, MAX_SAMPLE_BYTES + 1));
+            final int slot = sampled.getAndIncrement();
+            if (head.length > MAX_SAMPLE_BYTES) return new SequenceInputStream(new ByteArrayInputStream(head), input);
+            if (slot < SAMPLES_PER_FUNCTION) samples.set(slot, head);
+            return new ByteArrayInputStream(head);
+        }
+
+        List<byte[]> inherited() {
+            return inheritedSamples;
+        }
+
+        private long weight() {
+            return inheritedWeight + calls.sum();
+        }
+
+        private List<byte[]> samples() {
+            final List<byte[]> seen = new ArrayList<>(SAMPLES_PER_FUNCTION);
+            for (int i = 0; i < SAMPLES_PER_FUNCTION; i++) {
+                final byte[] sample = samples.get(i);
+                if (sample != null) seen.add(sample);
+            }
+            return seen.isEmpty() ? inheritedSamples : seen;
+        }
+    }
+}
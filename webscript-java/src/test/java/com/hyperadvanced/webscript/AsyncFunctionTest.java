@@ -0,0 +1,121 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncFunctionTest {
+
+    private static final Function<String, Integer> LENGTH = new Function<String, Integer>() {
+        @Override
+        public Integer apply(String input) throws Exception {
+            if (input.isEmpty()) throw new IOException("empty");
+            return input.length();
+        }
+
+        @Override
+        public Class<String> inputType() {
+            return String.class;
+        }
+
+        @Override
+        public Class<Integer> returnType() {
+            return Integer.class;
+        }
+    };
+
+    @Test
+    public void theAdaptersRoundTripResultsAndExceptions() throws Exception {
+        final Function<String, Integer> blocking = AsyncFunction.blocking(AsyncFunction.async(LENGTH));
+        assertEquals(3, (int) blocking.apply("abc"));
+        assertSame(String.class, blocking.inputType());
+        try {
+            blocking.apply("");
+            fail();
+        } catch (IOException expected) {
+            assertEquals("empty", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void applyAllReturnsResultsInInputOrderOnTheGivenExecutor() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> new Thread(runnable, "bounded"));
+        try {
+            final FunctionProvider provider = provider(input -> {
+                assertEquals("bounded", Thread.currentThread().getName());
+                return input.length();
+            });
+            final CompletableFuture<List<Integer>> results = provider.applyAll(URI.create("test:length"), String.class,
+                    Integer.class, Arrays.asList("a", "bbb", "cc", "dddd"), executor);
+            assertEquals(Arrays.asList(1, 3, 2, 4), results.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void applyAllRunsOnAtMostOnePlatformThreadPerProcessorByDefault() throws Exception {
+        Assume.assumeTrue(InvocationExecutors.SHARED instanceof ThreadPoolExecutor);
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger mostRunning = new AtomicInteger();
+        final FunctionProvider provider = provider(input -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Uninterruptibles.sleepUninterruptibly(5, TimeUnit.MILLISECONDS);
+            running.decrementAndGet();
+            return input.length();
+        });
+        final List<String> inputs = new ArrayList<>(Collections.nCopies(processors * 4, "ab"));
+        assertEquals(Collections.nCopies(inputs.size(), 2), provider.applyAll(URI.create("test:length"), String.class,
+                Integer.class, inputs).get(10, TimeUnit.SECONDS));
+        assertTrue(mostRunning.get() + " calls ran at once", mostRunning.get() <= processors);
+    }
+
+    @Test
+    public void applyAllFailsWhenACallFails() throws Exception {
+        final FunctionProvider provider = provider(input -> {
+            if (input.isEmpty()) throw new IllegalArgumentException("empty");
+            return input.length();
+        });
+        try {
+            provider.applyAll(URI.create("test:length"), String.class, Integer.class, Arrays.asList("a", "")).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalArgumentException);
+        }
+    }
+
+    private static FunctionProvider provider(java.util.function.Function<String, Integer> function) {
+        return new FunctionProvider() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T, R> java.util.function.Function<T, R> get(URI identifier, Class<T> inputType, Class<R> returnType) {
+                return (java.util.function.Function<T, R>) function;
+            }
+
+            @Override
+            public <T, R> java.util.function.Function<T, R> get(String identifier, Class<T> inputType, Class<R> returnType) {
+                return get(URI.create(identifier), inputType, returnType);
+            }
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BatchingServiceProviderTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> new Thread(runnable, "batch-runner"));
+    private final List<List<Integer>> batches = new ArrayList<>();
+    private final List<String> threads = new ArrayList<>();
+
+    private final ServiceProvider<List<Integer>, List<Integer>> doubler = () -> inputs -> {
+        synchronized (batches) {
+            batches.add(new ArrayList<>(inputs));
+            threads.add(Thread.currentThread().getName());
+        }
+        return inputs.stream().map(i -> i * 2).collect(Collectors.toList());
+    };
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void aFullBatchRunsOnTheExecutorAndEachCallerGetsItsOwnResult() throws Exception {
+        final BatchingServiceProvider<Integer, Integer> provider = new BatchingServiceProvider<>(doubler, 3, 1, TimeUnit.HOURS, executor);
+        final List<CompletableFuture<Integer>> results = Arrays.asList(provider.submit(1), provider.submit(2), provider.submit(3));
+        for (int i = 0; i < 3; i++) assertEquals(Integer.valueOf((i + 1) * 2), results.get(i).get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(Arrays.asList(1, 2, 3)), batches);
+        assertEquals(Arrays.asList("batch-runner"), threads);
+    }
+
+    @Test
+    public void aTimedOutBatchRunsOnTheExecutorNotTheTimer() throws Exception {
+        final BatchingServiceProvider<Integer, Integer> provider = new BatchingServiceProvider<>(doubler, 100, 10, TimeUnit.MILLISECONDS, executor);
+        assertEquals(Integer.valueOf(8), provider.get().apply(4));
+        assertEquals(Arrays.asList(Arrays.asList(4)), batches);
+        assertEquals(Arrays.asList("batch-runner"), threads);
+    }
+
+    @Test
+    public void aSlowServiceDoesNotHoldUpAnotherProvidersTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ServiceProvider<List<Integer>, List<Integer>> slow = () -> inputs -> {
+            Uninterruptibles.awaitUninterruptibly(release);
+            return inputs;
+        };
+        final CompletableFuture<Integer> stuck = new BatchingServiceProvider<>(slow, 100, 1, TimeUnit.MILLISECONDS, executor).submit(1);
+        try {
+            Thread.sleep(20);
+            final BatchingServiceProvider<Integer, Integer> provider = new BatchingServiceProvider<>(doubler, 100, 1, TimeUnit.MILLISECONDS, executor);
+            assertEquals(Integer.valueOf(10), provider.submit(5).get(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(Integer.valueOf(1), stuck.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void aRejectedBatchFailsItsCallers() throws Exception {
+        final ExecutorService closed = Executors.newSingleThreadExecutor();
+        closed.shutdown();
+        final CompletableFuture<Integer> result = new BatchingServiceProvider<>(doubler, 1, 1, TimeUnit.HOURS, closed).submit(1);
+        try {
+            result.get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+}
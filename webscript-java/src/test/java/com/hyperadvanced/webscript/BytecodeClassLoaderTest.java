@@ -0,0 +1,36 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BytecodeClassLoaderTest {
+
+    private static final String SHADOWING_REPEATER = "package com.hyperadvanced.webscript;\n" +
+            "public class Repeater implements java.util.function.Function<String, String> {\n" +
+            "    public String apply(String input) { return \"compiled \" + input; }\n" +
+            "}\n";
+
+    @Test
+    public void compiledClassesWinOverTheParents() throws Exception {
+        final Map<String, byte[]> bytecode = new SourceCompiler().compile(Collections.singletonList(SHADOWING_REPEATER));
+        final BytecodeClassLoader loader = new BytecodeClassLoader(getClass().getClassLoader(), bytecode);
+        final Class<?> repeater = loader.loadClass(Repeater.class.getName());
+        assertSame(loader, repeater.getClassLoader());
+        @SuppressWarnings("unchecked")
+        final java.util.function.Function<String, String> function = (java.util.function.Function<String, String>) repeater.newInstance();
+        assertEquals("compiled x", function.apply("x"));
+        assertSame(repeater, loader.loadClass(Repeater.class.getName()));
+    }
+
+    @Test
+    public void everythingElseComesFromTheParent() throws Exception {
+        final BytecodeClassLoader loader = new BytecodeClassLoader(getClass().getClassLoader(), Collections.emptyMap());
+        assertSame(Repeater.class, loader.loadClass(Repeater.class.getName()));
+        assertSame(String.class, loader.loadClass("java.lang.String"));
+    }
+}
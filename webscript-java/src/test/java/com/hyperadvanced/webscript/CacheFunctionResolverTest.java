@@ -0,0 +1,135 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.hyperadvanced.webscript.CompilingFunctionResolverTest.signature;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CacheFunctionResolverTest {
+
+    private static final Function<Object, Object> FUNCTION = input -> input;
+
+    /**
+     * Finds every signature except those for {@code test:missing}, recording each batch it is asked for.
+     */
+    private static class StubResolver implements FunctionResolver {
+        final List<Collection<FunctionSignature>> batches = new ArrayList<>();
+
+        @Override
+        public Function<?, ?> resolve(FunctionSignature signature) throws FunctionResolutionException {
+            if (signature.getIdentifier().toString().equals("test:missing")) {
+                throw new FunctionNotFoundException("No such function", signature.getIdentifier());
+            }
+            return FUNCTION;
+        }
+
+        @Override
+        public Map<FunctionSignature, Function<?, ?>> resolveAll(Collection<FunctionSignature> signatures) throws FunctionResolutionException {
+            batches.add(new ArrayList<>(signatures));
+            return FunctionResolver.super.resolveAll(signatures);
+        }
+    }
+
+    /**
+     * Resolves functions from a registry, running {@code beforeMiss} between failing to find one and reporting it.
+     */
+    private static class RegistryResolver implements FunctionResolver {
+        final Registry registry;
+        Runnable beforeMiss = () -> { };
+
+        RegistryResolver(Registry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public Function<?, ?> resolve(FunctionSignature signature) throws FunctionResolutionException {
+            final Function<?, ?> function = registry.getFunction(signature.getIdentifier());
+            if (function != null) return function;
+            beforeMiss.run();
+            throw new FunctionNotFoundException("Not registered", signature.getIdentifier());
+        }
+    }
+
+    private final StubResolver fallback = new StubResolver();
+    private final CacheFunctionResolver resolver = new CacheFunctionResolver(fallback);
+
+    @Test
+    public void resolveAllForwardsOnlyTheUncachedSignaturesInOneBatch() throws Exception {
+        resolver.resolve(signature("test:a"));
+        final Map<FunctionSignature, Function<?, ?>> functions = resolver.resolveAll(Arrays.asList(signature("test:a"), signature("test:b"), signature("test:c")));
+        assertEquals(3, functions.size());
+        assertEquals(1, fallback.batches.size());
+        assertEquals(Arrays.asList(signature("test:b"), signature("test:c")), fallback.batches.get(0));
+        resolver.resolveAll(Arrays.asList(signature("test:b"), signature("test:c")));
+        assertEquals(1, fallback.batches.size());
+    }
+
+    @Test
+    public void resolveAllRemembersTheMisses() throws Exception {
+        try {
+            resolver.resolveAll(Arrays.asList(signature("test:a"), signature("test:missing")));
+            fail();
+        } catch (PartialResolutionException e) {
+            assertSame(FUNCTION, e.getResolved().get(signature("test:a")));
+            assertTrue(e.getFailures().get(signature("test:missing")) instanceof FunctionNotFoundException);
+        }
+        try {
+            resolver.resolve(signature("test:missing"));
+            fail();
+        } catch (FunctionNotFoundException e) {
+            assertEquals(1, resolver.missHitCount());
+        }
+        assertSame(FUNCTION, resolver.resolve(signature("test:a")));
+        assertEquals(1, fallback.batches.size());
+    }
+
+    @Test
+    public void aMissFoundBeforeAnInvalidationIsNotRemembered() throws Exception {
+        final SimpleRegistry registry = new SimpleRegistry();
+        final RegistryResolver registryResolver = new RegistryResolver(registry);
+        final CacheFunctionResolver resolver = new CacheFunctionResolver(registryResolver);
+        resolver.invalidateMissesOn(registry);
+        registryResolver.beforeMiss = () -> registry.registerFunction(URI.create("test:late"), FUNCTION);
+        assertNotFound(resolver, signature("test:late"));
+        registryResolver.beforeMiss = () -> { };
+        assertSame(FUNCTION, resolver.resolve(signature("test:late")));
+    }
+
+    @Test
+    public void registeringAVersionForgetsTheMissesOfEveryRange() throws Exception {
+        final VersionedRegistry registry = new VersionedRegistry();
+        final CacheFunctionResolver resolver = new CacheFunctionResolver(new RegistryResolver(registry));
+        resolver.invalidateMissesOn(registry);
+        assertNotFound(resolver, signature("fn:echo:1.x"));
+        assertNotFound(resolver, signature("fn:echo"));
+        assertNotFound(resolver, signature("fn:other"));
+        assertEquals(0, resolver.missHitCount());
+        assertNotFound(resolver, signature("fn:other"));
+        assertEquals(1, resolver.missHitCount());
+
+        registry.registerFunction(URI.create("fn:echo:1.0.0"), FUNCTION);
+        assertSame(FUNCTION, resolver.resolve(signature("fn:echo:1.x")));
+        assertSame(FUNCTION, resolver.resolve(signature("fn:echo")));
+        assertNotFound(resolver, signature("fn:other"));
+        assertEquals(2, resolver.missHitCount());
+    }
+
+    private static void assertNotFound(FunctionResolver resolver, FunctionSignature signature) throws FunctionResolutionException {
+        try {
+            resolver.resolve(signature);
+            fail();
+        } catch (FunctionNotFoundException expected) {
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class ClassStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storedBytecodeLoadsBack() throws Exception {
+        final ClassStore store = new ClassStore(folder.getRoot().toPath());
+        final Map<String, byte[]> classes = new HashMap<>();
+        classes.put("a.B", "b".getBytes(StandardCharsets.UTF_8));
+        classes.put("a.B$C", "c".getBytes(StandardCharsets.UTF_8));
+        final String key = ClassStore.key(Collections.singletonList("class B {}"));
+        assertNull(store.load(key));
+        store.store(key, classes);
+        final Map<String, byte[]> loaded = store.load(key);
+        assertEquals(classes.keySet(), loaded.keySet());
+        assertArrayEquals(classes.get("a.B$C"), loaded.get("a.B$C"));
+    }
+
+    @Test
+    public void theKeyCoversTheSourcesAndTheEnvironment() {
+        final List<String> sources = Arrays.asList("class A {}", "class B {}");
+        assertEquals(ClassStore.key(sources, "jdk 8"), ClassStore.key(sources, "jdk 8"));
+        assertNotEquals(ClassStore.key(sources, "jdk 8"), ClassStore.key(sources, "jdk 11"));
+        assertNotEquals(ClassStore.key(sources, "jdk 8"), ClassStore.key(Arrays.asList("class A {}class B {}", ""), "jdk 8"));
+        assertEquals(ClassStore.key(sources, ClassStore.environment()), ClassStore.key(sources));
+    }
+}
@@ -0,0 +1,108 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompileSchedulerTest {
+
+    private final CompileScheduler scheduler = new CompileScheduler(1, 10, TimeUnit.SECONDS);
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void aRequestForOneKeyOfABatchJoinsAndPromotesIt() throws Exception {
+        occupyTheWorker();
+        final CompletableFuture<String> other = scheduler.submit("other", CompileScheduler.Priority.SPECULATIVE, () -> run("other"));
+        final Map<String, CompletableFuture<String>> batch = scheduler.submitAll(Arrays.asList("a", "b"),
+                CompileScheduler.Priority.SPECULATIVE, keys -> () -> {
+                    run("batch " + keys);
+                    return compiled(keys);
+                });
+        final CompletableFuture<String> request = scheduler.submit("b", CompileScheduler.Priority.REQUEST, () -> run("b alone"));
+        assertSame(batch.get("b"), request);
+        release.countDown();
+        assertEquals("compiled b", request.get(10, TimeUnit.SECONDS));
+        assertEquals("compiled a", batch.get("a").get(10, TimeUnit.SECONDS));
+        other.get(10, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("blocker", "batch [a, b]", "other"), ran);
+    }
+
+    @Test
+    public void keysAlreadyScheduledAreJoinedAndLeftOutOfTheBatch() throws Exception {
+        occupyTheWorker();
+        final CompletableFuture<String> single = scheduler.submit("a", CompileScheduler.Priority.REQUEST, () -> run("a alone"));
+        final Map<String, CompletableFuture<String>> batch = scheduler.submitAll(Arrays.asList("a", "b"),
+                CompileScheduler.Priority.SPECULATIVE, keys -> () -> {
+                    run("batch " + keys);
+                    return compiled(keys);
+                });
+        assertSame(single, batch.get("a"));
+        release.countDown();
+        assertEquals("a alone", batch.get("a").get(10, TimeUnit.SECONDS));
+        assertEquals("compiled b", batch.get("b").get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("blocker", "a alone", "batch [b]"), ran);
+    }
+
+    @Test
+    public void aFailedBatchFailsEveryKeyAndIsNotJoinedOnceDone() throws Exception {
+        final Map<String, CompletableFuture<String>> batch = scheduler.submitAll(Arrays.asList("a", "b"),
+                CompileScheduler.Priority.SPECULATIVE, keys -> () -> {
+                    throw new CompilationException("broken", Collections.emptyList());
+                });
+        for (CompletableFuture<String> future : batch.values()) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CompilationException);
+            }
+        }
+        assertEquals("a alone", scheduler.await("a", CompileScheduler.Priority.REQUEST, () -> run("a alone")));
+    }
+
+    private void occupyTheWorker() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit("blocker", CompileScheduler.Priority.REQUEST, () -> {
+            ran.add("blocker");
+            started.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            return null;
+        });
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+    }
+
+    private String run(String name) {
+        ran.add(name);
+        return name;
+    }
+
+    private static Map<String, String> compiled(Set<String> keys) {
+        final Map<String, String> results = new HashMap<>();
+        for (String key : keys) results.put(key, "compiled " + key);
+        return results;
+    }
+}
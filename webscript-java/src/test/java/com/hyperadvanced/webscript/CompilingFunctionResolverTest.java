@@ -0,0 +1,74 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompilingFunctionResolverTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    final Map<URI, List<String>> sources = new HashMap<>();
+
+    static String source(String name, String body) {
+        return "package test;\n" +
+                "public class " + name + " implements java.util.function.Function<String, String> {\n" +
+                "    public String apply(String s) { " + body + " }\n" +
+                "}\n";
+    }
+
+    static FunctionSignature signature(String identifier) {
+        return FunctionSignature.of(URI.create(identifier), TypeToken.of(String.class), TypeToken.of(String.class));
+    }
+
+    CompilingFunctionResolver resolver() throws Exception {
+        final CompilingFunctionResolver resolver = new CompilingFunctionResolver(new ClassStore(folder.newFolder().toPath()));
+        context(objects((SourcesLocator) sources::get)).resolveProperties(resolver);
+        return resolver;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aBatchResolvesEverySignature() throws Exception {
+        sources.put(URI.create("test:upper"), Collections.singletonList(source("Upper", "return s.toUpperCase();")));
+        sources.put(URI.create("test:lower"), Collections.singletonList(source("Lower", "return s.toLowerCase();")));
+        final Map<FunctionSignature, Function<?, ?>> functions = resolver().resolveAll(Arrays.asList(signature("test:upper"), signature("test:lower")));
+        assertEquals("AB", ((Function<String, String>) functions.get(signature("test:upper"))).apply("aB"));
+        assertEquals("ab", ((Function<String, String>) functions.get(signature("test:lower"))).apply("aB"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void aBrokenFunctionDoesNotFailTheRestOfTheBatch() throws Exception {
+        sources.put(URI.create("test:upper"), Collections.singletonList(source("Upper", "return s.toUpperCase();")));
+        sources.put(URI.create("test:broken"), Collections.singletonList(source("Broken", "return s.noSuchMethod();")));
+        sources.put(URI.create("test:lower"), Collections.singletonList(source("Lower", "return s.toLowerCase();")));
+        try {
+            resolver().resolveAll(Arrays.asList(signature("test:upper"), signature("test:broken"), signature("test:missing"), signature("test:lower")));
+            fail();
+        } catch (PartialResolutionException e) {
+            assertEquals(2, e.getResolved().size());
+            assertEquals("AB", ((Function<String, String>) e.getResolved().get(signature("test:upper"))).apply("aB"));
+            assertEquals("ab", ((Function<String, String>) e.getResolved().get(signature("test:lower"))).apply("aB"));
+            assertEquals(2, e.getFailures().size());
+            assertTrue(e.getFailures().get(signature("test:broken")).getCause() instanceof CompilationException);
+            assertTrue(e.getFailures().get(signature("test:missing")) instanceof FunctionNotFoundException);
+        }
+    }
+}
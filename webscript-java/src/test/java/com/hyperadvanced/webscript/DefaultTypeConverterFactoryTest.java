@@ -0,0 +1,137 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class DefaultTypeConverterFactoryTest {
+
+    static class Person {
+        String name;
+        int age;
+        Person friend;
+    }
+
+    static class Node {
+        List<Node> children;
+        Thread thread;
+    }
+
+    static class NodeView {
+        List<NodeView> children;
+        List<String> thread;
+    }
+
+    static class PersonView {
+        String name;
+        String age;
+        PersonView friend;
+        String unmatched;
+    }
+
+    private final DefaultTypeConverterFactory factory = new DefaultTypeConverterFactory();
+
+    @Test
+    public void assignableTypesPassThrough() {
+        final List<String> list = Arrays.asList("a", "b");
+        assertSame(list, factory.converter(new TypeToken<List<String>>() { }, new TypeToken<Iterable<String>>() { }).apply(list));
+        assertEquals(Integer.valueOf(3), factory.converter(TypeToken.of(int.class), TypeToken.of(Integer.class)).apply(3));
+    }
+
+    @Test
+    public void scalarsConvert() {
+        assertEquals("42", factory.converter(TypeToken.of(Integer.class), TypeToken.of(String.class)).apply(42));
+        assertEquals(Long.valueOf(42), factory.converter(TypeToken.of(String.class), TypeToken.of(Long.class)).apply("42"));
+        assertEquals(Integer.valueOf(2), factory.converter(TypeToken.of(Double.class), TypeToken.of(Integer.class)).apply(2.9));
+        assertEquals(new BigDecimal("1.5"), factory.converter(TypeToken.of(String.class), TypeToken.of(BigDecimal.class)).apply("1.5"));
+        assertEquals(Boolean.TRUE, factory.converter(TypeToken.of(String.class), TypeToken.of(Boolean.class)).apply("true"));
+        assertNull(factory.converter(TypeToken.of(String.class), TypeToken.of(Long.class)).apply(null));
+    }
+
+    @Test
+    public void collectionsAndMapsConvertTheirElements() {
+        final Set<Long> set = factory.converter(new TypeToken<List<String>>() { }, new TypeToken<Set<Long>>() { }).apply(Arrays.asList("1", "2", "1"));
+        assertEquals(new LinkedHashSet<>(Arrays.asList(1L, 2L)), set);
+        final Map<String, Integer> map = factory.converter(new TypeToken<Map<Integer, String>>() { }, new TypeToken<Map<String, Integer>>() { })
+                .apply(Collections.singletonMap(1, "2"));
+        assertEquals(Collections.singletonMap("1", 2), map);
+    }
+
+    @Test
+    public void pojosCopyFieldsOfTheSameNameIncludingRecursiveOnes() {
+        final Person bob = new Person();
+        bob.name = "bob";
+        bob.age = 40;
+        final Person alice = new Person();
+        alice.name = "alice";
+        alice.age = 30;
+        alice.friend = bob;
+        final PersonView view = factory.converter(TypeToken.of(Person.class), TypeToken.of(PersonView.class)).apply(alice);
+        assertEquals("alice", view.name);
+        assertEquals("30", view.age);
+        assertEquals("bob", view.friend.name);
+        assertEquals("40", view.friend.age);
+        assertNull(view.friend.friend);
+        assertNull(view.unmatched);
+    }
+
+    @Test
+    public void convertersAreBuiltOnce() {
+        assertSame(factory.converter(TypeToken.of(Person.class), TypeToken.of(PersonView.class)),
+                factory.converter(TypeToken.of(Person.class), TypeToken.of(PersonView.class)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedConversionsAreRejectedWhenTheConverterIsBuilt() {
+        factory.converter(TypeToken.of(Boolean.class), TypeToken.of(List.class));
+    }
+
+    @Test
+    public void narrowingANumberOutOfRangeFails() {
+        final TypeConverter<Long, Integer> toInt = factory.converter(TypeToken.of(Long.class), TypeToken.of(Integer.class));
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), toInt.apply((long) Integer.MIN_VALUE));
+        for (Object tooBig : Arrays.asList(1L << 32, 3e9, new BigDecimal("1e30"), Double.NaN)) {
+            try {
+                factory.converter(TypeToken.of(Number.class), TypeToken.of(Integer.class)).apply((Number) tooBig);
+                fail(String.valueOf(tooBig));
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+        try {
+            factory.converter(TypeToken.of(Integer.class), TypeToken.of(Byte.class)).apply(200);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            factory.converter(TypeToken.of(Double.class), TypeToken.of(Float.class)).apply(1e300);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void aFailedBuildLeavesNothingHalfBuiltInTheCache() {
+        try {
+            factory.converter(TypeToken.of(Node.class), TypeToken.of(NodeView.class));
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            factory.converter(new TypeToken<List<Node>>() { }, new TypeToken<List<NodeView>>() { });
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class FunctionCacheTest {
+
+    private static final Function<Object, Object> FUNCTION = input -> input;
+
+    private final FunctionCache cache = new FunctionCache(100, 1, TimeUnit.HOURS);
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        final FunctionSignature sig = signature("a");
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final Future<Function<?, ?>> first = executor.submit(() -> cache.get(sig, s -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                Uninterruptibles.awaitUninterruptibly(release);
+                return FUNCTION;
+            }));
+            loading.await();
+            final Future<Function<?, ?>> second = executor.submit(() -> cache.get(sig, s -> {
+                loads.incrementAndGet();
+                return input -> input;
+            }));
+            release.countDown();
+            assertSame(FUNCTION, first.get(10, TimeUnit.SECONDS));
+            assertSame(FUNCTION, second.get(10, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedLoadsAreNotCached() throws Exception {
+        final FunctionSignature sig = signature("a");
+        try {
+            cache.get(sig, s -> {
+                throw new FunctionResolutionException("broken", s.getIdentifier());
+            });
+            fail();
+        } catch (FunctionResolutionException e) {
+            assertEquals("broken", e.getMessage());
+        }
+        assertNull(cache.getIfPresent(sig));
+        assertSame(FUNCTION, cache.get(sig, s -> FUNCTION));
+        assertEquals(1, cache.stats().getLoadFailureCount());
+    }
+
+    @Test
+    public void anErrorFromTheLoaderReachesEveryWaiter() throws Exception {
+        final FunctionSignature sig = signature("a");
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<Function<?, ?>> loader = executor.submit(() -> cache.get(sig, s -> {
+                loading.countDown();
+                Uninterruptibles.awaitUninterruptibly(release);
+                throw new LinkageError("bad class");
+            }));
+            loading.await();
+            final Future<Function<?, ?>> waiter = executor.submit(() -> cache.get(sig, s -> FUNCTION));
+            release.countDown();
+            assertCause(LinkageError.class, loader);
+            // The waiter either joined the failed load or, arriving after it was dropped, loaded afresh
+            try {
+                assertSame(FUNCTION, waiter.get(10, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertEquals(LinkageError.class, e.getCause().getClass());
+            }
+            assertSame(FUNCTION, cache.get(sig, s -> FUNCTION));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void theEldestEntriesAreEvicted() throws Exception {
+        final FunctionCache small = new FunctionCache(2, 1, TimeUnit.HOURS);
+        small.get(signature("a"), s -> FUNCTION);
+        small.get(signature("b"), s -> FUNCTION);
+        small.get(signature("c"), s -> FUNCTION);
+        assertEquals(2, small.size());
+        assertNull(small.getIfPresent(signature("a")));
+        assertEquals(1, small.stats().getEvictionCount());
+    }
+
+    @Test
+    public void entriesExpire() throws Exception {
+        final FunctionCache expiring = new FunctionCache(10, 1, TimeUnit.MILLISECONDS);
+        final FunctionSignature sig = signature("a");
+        expiring.get(sig, s -> FUNCTION);
+        Thread.sleep(5);
+        assertNull(expiring.getIfPresent(sig));
+        final Function<Object, Object> reloaded = input -> input;
+        assertSame(reloaded, expiring.get(sig, s -> reloaded));
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, Future<?> future) throws Exception {
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected " + expected.getSimpleName());
+        } catch (ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+        }
+    }
+
+    static FunctionSignature signature(String identifier) {
+        return FunctionSignature.of(URI.create(identifier), TypeToken.of(Object.class), TypeToken.of(Object.class));
+    }
+}
@@ -0,0 +1,99 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FunctionHandleTest {
+
+    private final AtomicInteger binds = new AtomicInteger();
+    private final FunctionHandle<String, String> handle = new FunctionHandle<>(() -> {
+        final int version = binds.incrementAndGet();
+        return input -> input + version;
+    }, URI.create("test:echo"), String.class, String.class);
+
+    @Test
+    public void theFunctionIsBoundOnceUntilInvalidated() throws Exception {
+        assertEquals(0, binds.get());
+        assertEquals("a1", handle.apply("a"));
+        assertEquals("b1", handle.apply("b"));
+        assertSame(handle.function(), handle.function());
+        assertEquals(1, binds.get());
+        handle.invalidate();
+        assertEquals("c2", handle.apply("c"));
+        assertEquals(2, binds.get());
+    }
+
+    @Test
+    public void batchesAndAsyncCallsGoThroughTheSameBinding() throws Exception {
+        assertEquals(Arrays.asList("a1", "b1"), handle.applyBatch(Arrays.asList("a", "b")));
+        assertEquals("c1", handle.applyAsync("c").get(10, TimeUnit.SECONDS));
+        assertEquals(1, binds.get());
+    }
+
+    @Test
+    public void aFunctionBoundDuringARedeployIsNotKept() throws Exception {
+        final CountDownLatch binding = new CountDownLatch(1);
+        final CountDownLatch redeployed = new CountDownLatch(1);
+        final FunctionHandle<String, String> slow = new FunctionHandle<>(() -> {
+            final int version = binds.incrementAndGet();
+            if (version == 1) {
+                binding.countDown();
+                Uninterruptibles.awaitUninterruptibly(redeployed);
+            }
+            return input -> input + version;
+        }, URI.create("test:echo"), String.class, String.class);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> first = executor.submit(() -> slow.apply("a"));
+            assertTrue(binding.await(10, TimeUnit.SECONDS));
+            slow.invalidate();
+            redeployed.countDown();
+            assertEquals("a1", first.get(10, TimeUnit.SECONDS));
+            assertEquals("b2", slow.apply("b"));
+            assertEquals("c2", slow.apply("c"));
+            assertEquals(2, binds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aPrimitiveHandleDoesNotKeepAFunctionBoundDuringARedeploy() throws Exception {
+        final CountDownLatch binding = new CountDownLatch(1);
+        final CountDownLatch redeployed = new CountDownLatch(1);
+        final PrimitiveFunctionHandle<PrimitiveFunction.OfInt> slow = new PrimitiveFunctionHandle<>(() -> {
+            final int version = binds.incrementAndGet();
+            if (version == 1) {
+                binding.countDown();
+                Uninterruptibles.awaitUninterruptibly(redeployed);
+            }
+            return i -> i * 10 + version;
+        }, URI.create("test:scale"), PrimitiveFunction.OfInt.class);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Integer> first = executor.submit(() -> slow.function().applyAsInt(1));
+            assertTrue(binding.await(10, TimeUnit.SECONDS));
+            slow.invalidate();
+            redeployed.countDown();
+            assertEquals(11, (int) first.get(10, TimeUnit.SECONDS));
+            assertEquals(22, slow.function().applyAsInt(2));
+            assertSame(slow.function(), slow.function());
+            assertEquals(2, binds.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+import org.boon.di.Context;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FunctionServerTest {
+
+    public static class Item {
+        public String name;
+    }
+
+    public static class Echo implements Function<Item, Item> {
+        @Override
+        public Item apply(Item item) {
+            return item;
+        }
+    }
+
+    public static class Length implements Function<Item, Integer> {
+        @Override
+        public Integer apply(Item item) {
+            return item.name.length();
+        }
+    }
+
+    public static class FailsHalfway implements Function<Item, Object> {
+        @Override
+        public Object apply(Item item) {
+            return new Iterator<Integer>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Integer next() {
+                    if (next == 2) throw new IllegalStateException("halfway");
+                    return next++;
+                }
+            };
+        }
+    }
+
+    /**
+     * Fails the way a function calling another, missing, function through a handle would.
+     */
+    public static class CallsMissing implements Function<Item, Item> {
+        @Override
+        public Item apply(Item item) {
+            return FunctionServerTest.<RuntimeException>sneakyThrow(new FunctionNotFoundException("No such function", URI.create("missing")));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> Item sneakyThrow(Throwable t) throws E {
+        throw (E) t;
+    }
+
+    /**
+     * Serves whatever functions the test deploys, telling its listeners about each deployment.
+     */
+    private static final class DeployingResolver implements FunctionResolver {
+        private final Map<URI, Function<?, ?>> functions = new ConcurrentHashMap<>();
+        private final List<Consumer<URI>> listeners = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Function<?, ?> resolve(FunctionSignature signature) throws FunctionResolutionException {
+            if (signature.getIdentifier().equals(BROKEN)) {
+                throw new FunctionResolutionException("Broken.java:1: error: secret detail", BROKEN);
+            }
+            final Function<?, ?> function = functions.get(signature.getIdentifier());
+            if (function == null) throw new FunctionNotFoundException("No such function", signature.getIdentifier());
+            return function;
+        }
+
+        @Override
+        public void addDeployListener(Consumer<URI> listener) {
+            listeners.add(listener);
+        }
+
+        void deploy(String identifier, Function<?, ?> function) {
+            functions.put(URI.create(identifier), function);
+            for (Consumer<URI> listener : listeners) listener.accept(URI.create(identifier));
+        }
+    }
+
+    private static final URI BROKEN = URI.create("broken");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DeployingResolver resolver = new DeployingResolver();
+    private FunctionServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        final Context context = context(objects(resolver, new ClassCastFunctionTypeConverter()));
+        final InjectionHandlingFunctionProvider provider = new InjectionHandlingFunctionProvider(context);
+        context.resolveProperties(provider);
+        resolver.addDeployListener(provider::deployed);
+        server = new FunctionServer(resolver, provider, uri -> URI.create(uri.getPath().substring(1)), new Runner(),
+                new InetSocketAddress("localhost", 0), 10);
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private String[] post(String path, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", server.getAddress().getPort(), path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            return new String[]{String.valueOf(status), new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8)};
+        }
+    }
+
+    @Test
+    public void aFunctionIsServed() throws Exception {
+        resolver.deploy("echo", new Echo());
+        assertEquals("200", post("/echo", "{\"name\":\"a\"}")[0]);
+        assertEquals("{\"name\":\"a\"}", post("/echo", "{\"name\":\"a\"}")[1]);
+    }
+
+    @Test
+    public void anUnknownFunctionIsNotFound() throws Exception {
+        assertEquals("404", post("/nothing", "{}")[0]);
+    }
+
+    @Test
+    public void aFunctionThatCannotBeLoadedIsAServerErrorWithoutItsDetails() throws Exception {
+        final String[] response = post("/broken", "{}");
+        assertEquals("500", response[0]);
+        assertFalse(response[1], response[1].contains("secret"));
+    }
+
+    @Test
+    public void malformedInputIsABadRequest() throws Exception {
+        resolver.deploy("echo", new Echo());
+        assertEquals("400", post("/echo", "{\"name\":")[0]);
+    }
+
+    @Test
+    public void aResolutionFailureInsideTheFunctionIsAServerError() throws Exception {
+        resolver.deploy("calls-missing", new CallsMissing());
+        assertEquals("500", post("/calls-missing", "{\"name\":\"a\"}")[0]);
+    }
+
+    @Test
+    public void aStreamThatFailsHalfwayIsCutShortRatherThanEndedCleanly() throws Exception {
+        resolver.deploy("halfway", new FailsHalfway());
+        try {
+            fail(Arrays.toString(post("/halfway", "{\"name\":\"a\"}")));
+        } catch (IOException expected) {
+        }
+        resolver.deploy("echo", new Echo());
+        assertEquals("200", post("/echo", "{\"name\":\"a\"}")[0]);
+    }
+
+    @Test
+    public void aRedeployedFunctionIsServedWithItsNewTypes() throws Exception {
+        resolver.deploy("f", new Echo());
+        assertEquals("{\"name\":\"abc\"}", post("/f", "{\"name\":\"abc\"}")[1]);
+        resolver.deploy("f", new Length());
+        assertEquals("3", post("/f", "{\"name\":\"abc\"}")[1]);
+    }
+
+    @Test
+    public void malformedManifestLinesAreSkippedAndCounted() throws Exception {
+        resolver.deploy("echo", new Echo());
+        final Path manifest = folder.getRoot().toPath().resolve("manifest.ndjson");
+        Files.write(manifest, Arrays.asList(
+                "{\"identifier\":\"echo\",\"weight\":10,\"samples\":[\"{\\\"name\\\":\\\"a\\\"}\"]}",
+                "not json",
+                "null",
+                "{\"identifier\":\"echo\"}",
+                "{\"identifier\":\"echo\",\"weight\":\"ten\"}",
+                "{\"identifier\":\"not a uri\",\"weight\":1}",
+                "{\"weight\":1}"), StandardCharsets.UTF_8);
+        final WarmStart warmStart = new WarmStart(manifest, 1, TimeUnit.MINUTES, 1, 2);
+        warmStart.warm(server);
+        assertEquals(1, warmStart.warmed());
+        assertEquals(6, warmStart.failed());
+    }
+
+    @Test
+    public void largeBodiesAreServedWholeAndUseUpTheSamples() throws Exception {
+        resolver.deploy("echo", new Echo());
+        final Path manifest = folder.getRoot().toPath().resolve("manifest.ndjson");
+        final WarmStart warmStart = new WarmStart(manifest);
+        server.record(warmStart);
+        final String large = "{\"name\":\"" + Strings.repeat("x", 100 * 1024) + "\"}";
+        for (int i = 0; i < 4; i++) assertEquals(large, post("/echo", large)[1]);
+        assertEquals("{\"name\":\"small\"}", post("/echo", "{\"name\":\"small\"}")[1]);
+        warmStart.write();
+        final String written = new String(Files.readAllBytes(manifest), StandardCharsets.UTF_8);
+        assertTrue(written, written.contains("\"weight\":5"));
+        assertTrue(written, written.contains("\"samples\":[]"));
+    }
+}
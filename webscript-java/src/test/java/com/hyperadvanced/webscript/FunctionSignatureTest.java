@@ -0,0 +1,43 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class FunctionSignatureTest {
+
+    private static final URI ID = URI.create("test:inc");
+
+    @Test
+    public void equalSignaturesAreTheSameInstance() {
+        final FunctionSignature sig = FunctionSignature.of(ID, TypeToken.of(Integer.class), TypeToken.of(Integer.class));
+        assertSame(sig, FunctionSignature.of(URI.create("test:inc"), TypeToken.of(Integer.class), TypeToken.of(Integer.class)));
+        assertNotSame(sig, FunctionSignature.of(ID, TypeToken.of(Integer.class), TypeToken.of(Long.class)));
+    }
+
+    @Test
+    public void theBoxedSignatureIsInternedAndKept() {
+        final FunctionSignature primitive = FunctionSignature.of(ID, TypeToken.of(int.class), TypeToken.of(int.class));
+        final FunctionSignature boxed = FunctionSignature.of(ID, TypeToken.of(Integer.class), TypeToken.of(Integer.class));
+        assertSame(boxed, primitive.boxed());
+        assertSame(primitive.boxed(), primitive.boxed());
+        assertSame(boxed, boxed.boxed());
+    }
+
+    @Test
+    public void aPrimitiveSignatureResolvesAFunctionRegisteredOverTheBoxedTypes() throws Exception {
+        final Function<Integer, Integer> inc = i -> i + 1;
+        final MapFunctionResolver resolver = new MapFunctionResolver(Collections.singletonMap(
+                FunctionSignature.of(ID, TypeToken.of(Integer.class), TypeToken.of(Integer.class)), inc));
+        assertSame(inc, resolver.resolve(FunctionSignature.of(ID, TypeToken.of(int.class), TypeToken.of(int.class))));
+        assertEquals(new FunctionSignature<>(ID, TypeToken.of(int.class), TypeToken.of(int.class)).hashCode(),
+                FunctionSignature.of(ID, TypeToken.of(int.class), TypeToken.of(int.class)).hashCode());
+    }
+}
@@ -0,0 +1,199 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.boon.di.Context;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InjectionHandlingFunctionProviderTest {
+
+    /**
+     * What the compiled test functions do when called, so that a test can hold a call in flight.
+     */
+    public static volatile Function<String, String> body = s -> s;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Map<URI, List<String>> sources = new HashMap<>();
+    private final Metrics metrics = new Metrics();
+    private CompilingFunctionResolver compilingResolver;
+    private InjectionHandlingFunctionProvider provider;
+
+    static String source(String className, String prefix) {
+        return "package test;\n" +
+                "public class " + className + " implements java.util.function.Function<String, String> {\n" +
+                "    public String apply(String s) {\n" +
+                "        return \"" + prefix + "\" + " + InjectionHandlingFunctionProviderTest.class.getName() + ".body.apply(s);\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    static String pureSource(String className, String prefix) {
+        return source(className, prefix).replace("public class", "@" + Pure.class.getName() + " public class");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        compilingResolver = new CompilingFunctionResolver(new ClassStore(folder.getRoot().toPath()));
+        final FunctionResolver resolver = new CacheFunctionResolver(compilingResolver);
+        final Context context = context(objects((SourcesLocator) sources::get, resolver, new ClassCastFunctionTypeConverter(), metrics));
+        provider = new InjectionHandlingFunctionProvider(context);
+        context.resolveProperties(compilingResolver);
+        context.resolveProperties(provider);
+        resolver.addDeployListener(provider::deployed);
+    }
+
+    @After
+    public void tearDown() {
+        body = s -> s;
+    }
+
+    @Test
+    public void aReplacedVersionDrainsOnceItsCallsReturn() throws Exception {
+        final URI identifier = URI.create("test:echo");
+        sources.put(identifier, Collections.singletonList(source("Echo", "v1 ")));
+        final FunctionHandle<String, String> handle = provider.handle(identifier, String.class, String.class);
+        assertEquals("v1 x", handle.apply("x"));
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        body = s -> {
+            entered.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            return s;
+        };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<String> call = executor.submit(() -> handle.apply("y"));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            body = s -> s;
+            sources.put(identifier, Collections.singletonList(source("Echo", "v2 ")));
+            provider.redeploy(identifier);
+            assertEquals(1, compilingResolver.drainingCalls());
+            assertEquals("v2 z", handle.apply("z"));
+            release.countDown();
+            assertEquals("v1 y", call.get(10, TimeUnit.SECONDS));
+            assertEquals(0, compilingResolver.drainingCalls());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void handlesFollowARedeployMadeAnywhereInTheResolverChain() throws Exception {
+        final URI identifier = URI.create("test:echo");
+        sources.put(identifier, Collections.singletonList(source("Echo", "v1 ")));
+        final FunctionHandle<String, String> handle = provider.handle(identifier, String.class, String.class);
+        assertEquals("v1 x", handle.apply("x"));
+        sources.put(identifier, Collections.singletonList(source("Echo", "v2 ")));
+        compilingResolver.redeploy(identifier);
+        assertEquals("v2 x", handle.apply("x"));
+    }
+
+    @Test
+    public void aFunctionWhoseSourceHasGoneIsRetired() throws Exception {
+        final URI identifier = URI.create("test:echo");
+        sources.put(identifier, Collections.singletonList(source("Echo", "")));
+        final FunctionHandle<String, String> handle = provider.handle(identifier, String.class, String.class);
+        assertEquals("x", handle.apply("x"));
+        sources.remove(identifier);
+        provider.redeploy(identifier);
+        assertEquals(1, compilingResolver.drainingVersions());
+        try {
+            handle.apply("x");
+            fail();
+        } catch (FunctionNotFoundException e) {
+            assertEquals(identifier, e.getUri());
+        }
+    }
+
+    @Test
+    public void aRedeployRemovesTheFunctionsMetrics() throws Exception {
+        final URI identifier = URI.create("test:echo");
+        sources.put(identifier, Collections.singletonList(source("Echo", "")));
+        provider.get(identifier, String.class, String.class).apply("x");
+        assertTrue(metrics.getSnapshot().contains("invoke test:echo"));
+        sources.put(identifier, Collections.singletonList(source("Echo", "v2 ")));
+        compilingResolver.redeploy(identifier);
+        assertFalse(metrics.getSnapshot().contains("invoke test:echo"));
+    }
+
+    @Test
+    public void aMemoizedFunctionIsUnloadedOnceReplaced() throws Exception {
+        final URI identifier = URI.create("test:pure");
+        final AtomicInteger calls = new AtomicInteger();
+        body = s -> {
+            calls.incrementAndGet();
+            return s;
+        };
+        sources.put(identifier, Collections.singletonList(pureSource("Pure", "v1 ")));
+        callTwice(identifier);
+        assertEquals(1, calls.get());
+        assertTrue(metrics.getGauges().containsKey("memo.test:pure.hitCount"));
+
+        sources.put(identifier, Collections.singletonList(pureSource("Pure", "v2 ")));
+        provider.redeploy(identifier);
+        assertEquals("v2 x", provider.get(identifier, String.class, String.class).apply("x"));
+        for (int i = 0; i < 200 && compilingResolver.drainingVersions() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, compilingResolver.drainingVersions());
+    }
+
+    @Test
+    public void aPrimitiveHandleReachesTheFunctionUnboxedAndFollowsARedeploy() throws Exception {
+        final URI identifier = URI.create("test:inc");
+        sources.put(identifier, Collections.singletonList(incrementSource(1)));
+        final PrimitiveFunctionHandle<PrimitiveFunction.OfInt> handle = provider.handle(identifier, PrimitiveFunction.OfInt.class);
+        assertSame(handle, provider.handle(identifier, PrimitiveFunction.OfInt.class));
+        assertEquals(2, handle.function().applyAsInt(1));
+        assertSame(handle.function(), handle.function());
+        assertTrue(metrics.getSnapshot().contains("invoke test:inc"));
+
+        sources.put(identifier, Collections.singletonList(incrementSource(10)));
+        compilingResolver.redeploy(identifier);
+        assertEquals(11, handle.function().applyAsInt(1));
+    }
+
+    private static String incrementSource(int by) {
+        return "package test;\n" +
+                "public class Inc implements " + PrimitiveFunction.OfInt.class.getCanonicalName() + " {\n" +
+                "    public int applyAsInt(int i) {\n" +
+                "        return i + " + by + ";\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    private void callTwice(URI identifier) throws FunctionResolutionException {
+        final Function<String, String> function = provider.get(identifier, String.class, String.class);
+        assertEquals("v1 x", function.apply("x"));
+        assertEquals("v1 x", function.apply("x"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.hyperadvanced.webscript;
+
+import org.boon.di.Inject;
+import org.junit.Test;
+
+import static org.boon.di.DependencyInjection.context;
+import static org.boon.di.DependencyInjection.objects;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class InjectionPlanTest {
+
+    static class Base {
+        @Inject private Metrics metrics;
+    }
+
+    static class Injected extends Base {
+        @Inject private SourcesLocator locator;
+        @Inject private static Metrics shared;
+        private Metrics ignored;
+    }
+
+    static class Plain {
+        private Metrics metrics;
+    }
+
+    @Test
+    public void plansAreBuiltOncePerClass() {
+        assertSame(InjectionPlan.of(Injected.class), InjectionPlan.of(Injected.class));
+        assertTrue(InjectionPlan.of(Plain.class).isEmpty());
+        assertFalse(InjectionPlan.of(Injected.class).isEmpty());
+    }
+
+    @Test
+    public void annotatedInstanceFieldsAreSetIncludingInheritedOnes() {
+        final Metrics metrics = new Metrics();
+        final SourcesLocator locator = uri -> null;
+        final Injected injected = new Injected();
+        InjectionPlan.of(Injected.class).inject(injected, context(objects(metrics, locator)));
+        assertSame(metrics, ((Base) injected).metrics);
+        assertSame(locator, injected.locator);
+        assertNull(injected.ignored);
+        assertNull(Injected.shared);
+    }
+
+    @Test
+    public void fieldsTheContextHasNothingForAreLeftAlone() {
+        final SourcesLocator locator = uri -> null;
+        final Injected injected = new Injected();
+        injected.locator = locator;
+        InjectionPlan.of(Injected.class).inject(injected, context(objects(new Metrics())));
+        assertSame(locator, injected.locator);
+    }
+}
@@ -0,0 +1,39 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InstrumentedFunctionResolverTest {
+
+    private static final FunctionSignature<String, String> ECHO = FunctionSignature.of(URI.create("instrumented:echo"),
+            TypeToken.of(String.class), TypeToken.of(String.class));
+
+    private final Metrics metrics = new Metrics();
+    private final InstrumentedFunctionResolver resolver = new InstrumentedFunctionResolver(
+            new MapFunctionResolver(Collections.singletonMap(ECHO, (Function<String, String>) s -> s)), metrics);
+
+    @Test
+    public void failuresShareOneHistogramAndOnlyResolvedSignaturesGetTheirOwn() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            try {
+                resolver.resolve(FunctionSignature.of(URI.create("instrumented:missing" + i), TypeToken.of(String.class), TypeToken.of(String.class)));
+                fail();
+            } catch (FunctionNotFoundException expected) {
+            }
+        }
+        resolver.resolve(ECHO);
+        final String snapshot = metrics.getSnapshot();
+        assertFalse(snapshot, snapshot.contains("missing"));
+        assertTrue(snapshot, snapshot.contains("instrumented:echo"));
+        assertEquals(3, metrics.histogram("resolve", "notFound").getFailures());
+    }
+}
@@ -0,0 +1,160 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JsonCodecTest {
+
+    public static class Item {
+        public String name;
+        public int count;
+    }
+
+    private final JsonCodec codec = new JsonCodec();
+
+    private static InputStream input(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hands out one byte per read, as a slow network connection might.
+     */
+    private static InputStream trickle(String text) {
+        return new FilterInputStream(input(text)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    private List<Item> readAll(InputStream input) throws Exception {
+        final JsonCodec.Lines lines = codec.lines(input);
+        final List<Item> items = new ArrayList<>();
+        while (lines.hasNext()) items.add(lines.next(Item.class));
+        return items;
+    }
+
+    @Test
+    public void aNullLineIsAValueNotTheEndOfTheInput() throws Exception {
+        final List<Item> items = readAll(input("{\"name\":\"a\",\"count\":1}\nnull\n{\"name\":\"b\",\"count\":2}\n"));
+        assertEquals(3, items.size());
+        assertEquals("a", items.get(0).name);
+        assertNull(items.get(1));
+        assertEquals(2, items.get(2).count);
+    }
+
+    @Test
+    public void blankLinesCarriageReturnsAndAMissingFinalNewlineAreHandled() throws Exception {
+        for (InputStream input : Arrays.asList(input("\n{\"name\":\"a\"}\r\n  \r\n\n{\"name\":\"b\"}"), trickle("\n{\"name\":\"a\"}\r\n  \r\n\n{\"name\":\"b\"}"))) {
+            final List<Item> items = readAll(input);
+            assertEquals(2, items.size());
+            assertEquals("a", items.get(0).name);
+            assertEquals("b", items.get(1).name);
+        }
+    }
+
+    @Test
+    public void linesLongerThanTheBufferAndNonAsciiTextAreRead() throws Exception {
+        final String longName = String.join("", Collections.nCopies(20_000, "x"));
+        final List<Item> items = readAll(input("{\"name\":\"" + longName + "\"}\n{\"name\":\"caf\u00e9 \u2603\"}\n"));
+        assertEquals(longName, items.get(0).name);
+        assertEquals("caf\u00e9 \u2603", items.get(1).name);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void readingPastTheEndFails() throws Exception {
+        final JsonCodec.Lines lines = codec.lines(input("\n\n"));
+        assertFalse(lines.hasNext());
+        lines.next(Map.class);
+    }
+
+    @Test
+    public void writtenLinesReadBack() throws Exception {
+        final Item item = new Item();
+        item.name = "a";
+        item.count = 3;
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.writeLine(item, output);
+        codec.writeLine(null, output);
+        final JsonCodec.Lines lines = codec.lines(new ByteArrayInputStream(output.toByteArray()));
+        assertTrue(lines.hasNext());
+        assertEquals(3, lines.next(Item.class).count);
+        assertTrue(lines.hasNext());
+        assertNull(lines.next(Item.class));
+        assertFalse(lines.hasNext());
+    }
+
+    /**
+     * Counts the elements pulled and the flushes, and checks every element has been written before the next is pulled.
+     */
+    private static final class CountingIterator implements Iterator<Integer>, AutoCloseable {
+        private final ByteArrayOutputStream output;
+        private final int size;
+        private final AtomicInteger pulled = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private CountingIterator(ByteArrayOutputStream output, int size) {
+            this.output = output;
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pulled.get() < size;
+        }
+
+        @Override
+        public Integer next() {
+            if (pulled.get() > 0) assertTrue(output.size() > 1);
+            return pulled.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    @Test
+    public void anIteratorIsWrittenAsAnArrayOneElementAtATimeAndClosed() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        final CountingIterator iterator = new CountingIterator(output, 3);
+        codec.write(iterator, output);
+        assertEquals("[1,2,3]", new String(output.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(iterator.closed.get());
+    }
+
+    @Test
+    public void aStreamIsWrittenAsAnArrayAndClosed() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        codec.write(Stream.of("a", "b").onClose(() -> closed.set(true)), output);
+        assertEquals("[\"a\",\"b\"]", new String(output.toByteArray(), StandardCharsets.UTF_8));
+        assertTrue(closed.get());
+        output.reset();
+        codec.write(Stream.empty(), output);
+        assertEquals("[]", new String(output.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
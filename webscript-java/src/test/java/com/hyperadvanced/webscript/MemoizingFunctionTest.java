@@ -0,0 +1,139 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MemoizingFunctionTest {
+
+    static class Input {
+        String value;
+        int times;
+        List<String> tags;
+
+        Input(String value, int times, List<String> tags) {
+            this.value = value;
+            this.times = times;
+            this.tags = tags;
+        }
+    }
+
+    static final class Point {
+        final int x;
+
+        Point(int x) {
+            this.x = x;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Point && ((Point) o).x == x;
+        }
+
+        @Override
+        public int hashCode() {
+            return x;
+        }
+    }
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger singles = new AtomicInteger();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private final CountDownLatch batching = new CountDownLatch(1);
+
+    private final MemoizingFunction<String, String> memo = new MemoizingFunction<>(new BatchFunction<String, String>() {
+        @Override
+        public String apply(String input) {
+            singles.incrementAndGet();
+            return input.toUpperCase();
+        }
+
+        @Override
+        public List<String> applyBatch(List<? extends String> inputs) {
+            batches.add(new ArrayList<>(inputs));
+            batching.countDown();
+            Uninterruptibles.awaitUninterruptibly(release);
+            final List<String> results = new ArrayList<>();
+            for (String input : inputs) {
+                if (input.equals("fail")) throw new IllegalArgumentException(input);
+                results.add(input.toUpperCase());
+            }
+            return results;
+        }
+    }, 100, 1, TimeUnit.HOURS);
+
+    @Test
+    public void aBatchComputesEachDistinctMissOnceAndCountsIt() {
+        assertEquals("A", memo.apply("a"));
+        assertEquals(Arrays.asList("A", "B", "B", "C"), memo.applyBatch(Arrays.asList("a", "b", "b", "c")));
+        assertEquals(Collections.singletonList(Arrays.asList("b", "c")), batches);
+        assertEquals(1, memo.stats().getHitCount());
+        assertEquals(3, memo.stats().getMissCount());
+        assertEquals(Arrays.asList("B", "C"), memo.applyBatch(Arrays.asList("b", "c")));
+        assertEquals(1, batches.size());
+        assertEquals(3, memo.stats().getHitCount());
+    }
+
+    @Test
+    public void aCallForAnInputTheBatchIsComputingWaitsForIt() throws Exception {
+        release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<List<String>> batch = executor.submit(() -> memo.applyBatch(Arrays.asList("a", "b")));
+            assertTrue(batching.await(10, TimeUnit.SECONDS));
+            final Future<String> single = executor.submit(() -> memo.apply("b"));
+            Thread.sleep(50);
+            release.countDown();
+            assertEquals(Arrays.asList("A", "B"), batch.get(10, TimeUnit.SECONDS));
+            assertEquals("B", single.get(10, TimeUnit.SECONDS));
+            assertEquals(0, singles.get());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void aFailedBatchIsNotCached() {
+        try {
+            memo.applyBatch(Arrays.asList("a", "fail"));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(0, memo.size());
+        assertEquals("A", memo.apply("a"));
+        assertEquals(1, singles.get());
+    }
+
+    @Test
+    public void inputsDifferingOnlyInNullsDefaultsOrEmptyValuesHaveDifferentKeys() {
+        final Object key = MemoizingFunction.fingerprint(new Input("a", 1, Collections.singletonList("t")));
+        assertEquals(key, MemoizingFunction.fingerprint(new Input("a", 1, Collections.singletonList("t"))));
+        assertNotEquals(MemoizingFunction.fingerprint(new Input(null, 1, null)), MemoizingFunction.fingerprint(new Input("", 1, null)));
+        assertNotEquals(MemoizingFunction.fingerprint(new Input("a", 0, null)), MemoizingFunction.fingerprint(new Input("a", 0, Collections.emptyList())));
+        assertNotEquals(MemoizingFunction.fingerprint(new Input(" ", 0, null)), MemoizingFunction.fingerprint(new Input("", 0, null)));
+    }
+
+    @Test
+    public void inputsWithTheirOwnEqualityAreTheirOwnKeys() {
+        final Point point = new Point(3);
+        assertSame(point, MemoizingFunction.fingerprint(point));
+        assertSame("a", MemoizingFunction.fingerprint("a"));
+    }
+}
@@ -0,0 +1,94 @@
+package com.hyperadvanced.webscript;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    private static final FunctionSignature<String, String> ECHO = FunctionSignature.of(URI.create("metrics:echo"),
+            TypeToken.of(String.class), TypeToken.of(String.class));
+
+    private final Metrics metrics = new Metrics();
+
+    @After
+    public void unregister() {
+        metrics.unregisterMBeans();
+    }
+
+    @Test
+    public void idleHistogramsAreRemovedAndComeBackWhenUsed() throws Exception {
+        metrics.registerMBeans();
+        final LatencyHistogram histogram = metrics.histogram("invoke", ECHO);
+        histogram.record(1_000);
+        final ObjectName name = new ObjectName("com.hyperadvanced.webscript:type=Latency,operation=\"invoke\",subject="
+                + ObjectName.quote(histogram.getSubject()));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        assertTrue("the first check only notes the count", metrics.getSnapshot().contains("metrics:echo"));
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        assertFalse(metrics.getSnapshot().contains("metrics:echo"));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        histogram.record(2_000);
+        assertSame(histogram, metrics.histogram("invoke", ECHO));
+        assertEquals(2, histogram.getCount());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void histogramsInUseAreKept() {
+        final LatencyHistogram histogram = metrics.histogram("invoke", ECHO);
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        histogram.record(1_000);
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        assertSame(histogram, metrics.histogram("invoke", ECHO));
+        metrics.removeIdle(1, TimeUnit.HOURS);
+        assertSame(histogram, metrics.histogram("invoke", ECHO));
+    }
+
+    @Test
+    public void onlySignatureHistogramsExpire() {
+        final LatencyHistogram compile = metrics.histogram("compile", ECHO.getIdentifier());
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        metrics.removeIdle(0, TimeUnit.NANOSECONDS);
+        assertSame(compile, metrics.histogram("compile", ECHO.getIdentifier()));
+    }
+
+    @Test
+    public void redeployingRemovesTheSignatureHistograms() {
+        final LatencyHistogram invoke = metrics.histogram("invoke", ECHO);
+        final LatencyHistogram compile = metrics.histogram("compile", ECHO.getIdentifier());
+        metrics.gauge("memo.metrics:echo.size", () -> 1);
+        metrics.remove(ECHO.getIdentifier());
+        metrics.removeGauges("memo.metrics:echo.");
+        invoke.record(1_000);
+        assertNotSame(invoke, metrics.histogram("invoke", ECHO));
+        assertSame(compile, metrics.histogram("compile", ECHO.getIdentifier()));
+        assertTrue(metrics.getGauges().isEmpty());
+    }
+
+    @Test
+    public void idleHistogramsExpireOnTheirOwn() throws Exception {
+        final LatencyHistogram histogram = metrics.histogram("invoke", ECHO);
+        metrics.expireIdle(10, TimeUnit.MILLISECONDS);
+        try {
+            for (int i = 0; i < 500 && metrics.getSnapshot().contains("metrics:echo"); i++) Thread.sleep(10);
+            assertNotSame(histogram, metrics.histogram("invoke", ECHO));
+        } finally {
+            metrics.stopExpiring();
+        }
+    }
+}
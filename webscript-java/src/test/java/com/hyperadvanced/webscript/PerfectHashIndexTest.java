@@ -0,0 +1,47 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PerfectHashIndexTest {
+
+    private static Map<String, Integer> entries(int n) {
+        final Map<String, Integer> entries = new HashMap<>();
+        for (int i = 0; i < n; i++) entries.put("key" + i, i);
+        return entries;
+    }
+
+    private static void assertFinds(Map<String, Integer> entries, PerfectHashIndex<String, Integer> index) {
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            assertEquals(entry.getValue(), index.get(entry.getKey()));
+        }
+        assertNull(index.get("missing"));
+    }
+
+    @Test
+    public void everyKeyIsFound() {
+        final Map<String, Integer> entries = entries(1000);
+        assertFinds(entries, new PerfectHashIndex<>(entries));
+    }
+
+    @Test
+    public void bucketsThatFindNoSlotsWithinTheCapFallBackToTheOverflowMap() {
+        final Map<String, Integer> entries = entries(1000);
+        assertFinds(entries, new PerfectHashIndex<>(entries, 1));
+        assertFinds(entries, new PerfectHashIndex<>(entries, 0));
+    }
+
+    @Test
+    public void keysSharingAHashCodeAreAllFound() {
+        final Map<String, Integer> entries = new HashMap<>();
+        entries.put("Aa", 1);
+        entries.put("BB", 2);
+        entries.put("C", 3);
+        assertFinds(entries, new PerfectHashIndex<>(entries));
+    }
+}
@@ -0,0 +1,68 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PrimitiveFunctionTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final PrimitiveFunction.Around around = new PrimitiveFunction.Around() {
+        private long calls;
+
+        @Override
+        public long start() {
+            events.add("start");
+            return ++calls;
+        }
+
+        @Override
+        public void succeeded(long start) {
+            events.add("succeeded " + start);
+        }
+
+        @Override
+        public void failed(long start) {
+            events.add("failed " + start);
+        }
+    };
+
+    @Test
+    public void everyShapeCallsThroughAround() {
+        assertEquals(2, PrimitiveFunction.around(PrimitiveFunction.OfInt.class, i -> i + 1, around).applyAsInt(1));
+        assertEquals(3L, PrimitiveFunction.around(PrimitiveFunction.OfLong.class, l -> l + 1, around).applyAsLong(2L));
+        assertEquals(1.5, PrimitiveFunction.around(PrimitiveFunction.OfDouble.class, d -> d / 2, around).applyAsDouble(3.0), 0);
+        assertEquals(2.0, PrimitiveFunction.around(PrimitiveFunction.LongToDouble.class, l -> l / 2.0, around).applyAsDouble(4L), 0);
+        assertEquals(2L, PrimitiveFunction.around(PrimitiveFunction.DoubleToLong.class, Math::round, around).applyAsLong(1.6));
+        assertEquals(10, events.size());
+        assertEquals("succeeded 5", events.get(9));
+    }
+
+    @Test
+    public void aFailedCallIsReportedAndRethrown() {
+        final PrimitiveFunction.OfInt failing = PrimitiveFunction.around((PrimitiveFunction.OfInt) i -> 1 / i, around);
+        try {
+            failing.applyAsInt(0);
+            fail();
+        } catch (ArithmeticException expected) {
+        }
+        assertEquals("failed 1", events.get(1));
+    }
+
+    @Test
+    public void theBoxedMethodOfAWrappedShapeStillGoesThroughAround() {
+        final PrimitiveFunction.OfLong wrapped = PrimitiveFunction.around(PrimitiveFunction.OfLong.class, l -> -l, around);
+        assertEquals(Long.valueOf(-7), wrapped.apply(7L));
+        assertEquals(2, events.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyTheShapesCanBeWrapped() {
+        PrimitiveFunction.around(PrimitiveFunction.class, new PrimitiveFunction() {
+        }, around);
+    }
+}
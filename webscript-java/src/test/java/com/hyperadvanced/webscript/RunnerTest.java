@@ -0,0 +1,69 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class RunnerTest {
+
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private final BatchFunction<String, String> upper = new BatchFunction<String, String>() {
+        @Override
+        public String apply(String input) {
+            return input.toUpperCase();
+        }
+
+        @Override
+        public List<String> applyBatch(List<? extends String> inputs) {
+            chunkSizes.add(inputs.size());
+            return BatchFunction.super.applyBatch(inputs);
+        }
+    };
+
+    @Test
+    public void linesAlreadyReadAreRunInChunksOfTheBatchSize() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] in = "\"a\"\n\"b\"\n\n\"c\"\n\"d\"\n\"e\"\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(5, new Runner(2).runBatch(upper, String.class, new ByteArrayInputStream(in), out));
+        assertEquals("\"A\"\n\"B\"\n\"C\"\n\"D\"\n\"E\"\n", out.toString("UTF-8"));
+        assertEquals(Arrays.asList(2, 2, 1), chunkSizes);
+    }
+
+    @Test
+    public void eachStreamedLineIsAnsweredWithoutWaitingForTheChunkToFill() throws Exception {
+        final PipedOutputStream client = new PipedOutputStream();
+        final PipedInputStream in = new PipedInputStream(client);
+        final PipedInputStream responses = new PipedInputStream();
+        final OutputStream out = new PipedOutputStream(responses);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(responses, StandardCharsets.UTF_8));
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<Long> run = executor.submit(() -> new Runner().runBatch(upper, String.class, in, out));
+            client.write("\"a\"\n".getBytes(StandardCharsets.UTF_8));
+            client.flush();
+            assertEquals("\"A\"", reader.readLine());
+            client.write("\"b\"\n".getBytes(StandardCharsets.UTF_8));
+            client.close();
+            assertEquals("\"B\"", reader.readLine());
+            assertEquals(2L, (long) run.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
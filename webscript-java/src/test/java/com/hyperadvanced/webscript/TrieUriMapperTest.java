@@ -0,0 +1,120 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class TrieUriMapperTest {
+
+    private final TrieUriMapper mapper = new TrieUriMapper();
+
+    @Test
+    public void literalsBeatWildcardsWhichBeatTheRemainder() {
+        mapper.addMapping("/v1/**", "fn:rest");
+        mapper.addMapping("/v1/*", "fn:any");
+        mapper.addMapping("/v1/echo", "fn:echo");
+        assertEquals("fn:echo", map("/v1/echo"));
+        assertEquals("fn:any", map("/v1/upper"));
+        assertEquals("fn:rest", map("/v1/upper/more"));
+        assertEquals("fn:rest", map("/v1"));
+    }
+
+    @Test
+    public void aPatternThatEndsBeatsOneThatContinuesWithTheRemainder() {
+        mapper.addMapping("/v1/echo/**", "fn:rest");
+        mapper.addMapping("/v1/echo", "fn:echo");
+        assertEquals("fn:echo", map("/v1/echo"));
+        assertEquals("fn:rest", map("/v1/echo/x"));
+    }
+
+    @Test
+    public void aLiteralBranchWithNoMatchFallsBackToTheWildcard() {
+        mapper.addMapping("/v1/echo/deep", "fn:deep");
+        mapper.addMapping("/v1/{fn}/other", "fn:{fn}");
+        mapper.addMapping("/**", "fn:root/{**}");
+        assertEquals("fn:deep", map("/v1/echo/deep"));
+        assertEquals("fn:echo", map("/v1/echo/other"));
+        assertEquals("fn:root/v1/echo/nothing", map("/v1/echo/nothing"));
+    }
+
+    @Test
+    public void capturesAndTheRemainderFillTheTarget() {
+        mapper.addMapping("/v1/{fn}/**", "fn:{fn}/{**}");
+        assertEquals("fn:upper/a/b", map("/v1/upper/a/b"));
+        assertEquals("fn:upper/", map("/v1/upper"));
+        assertEquals("fn:upper/a", map("/v1/upper/a/"));
+    }
+
+    @Test
+    public void equallySpecificPatternsRankInTheOrderTheyWereAdded() {
+        mapper.addMapping("/v1/{a}", "fn:first/{a}");
+        mapper.addMapping("/v1/*", "fn:second");
+        assertEquals("fn:first/x", map("/v1/x"));
+        mapper.removeMapping("/v1/{a}");
+        assertEquals("fn:second", map("/v1/x"));
+    }
+
+    @Test
+    public void addingAPatternAgainReplacesItsTarget() {
+        mapper.addMapping("/v1/{a}", "fn:first");
+        mapper.addMapping("/v1/*", "fn:second");
+        mapper.addMapping("/v1/{a}", "fn:replaced");
+        assertEquals("fn:replaced", map("/v1/x"));
+        assertEquals(Arrays.asList("fn:replaced", "fn:second"), Arrays.asList(mapper.getMappings().values().toArray()));
+    }
+
+    @Test
+    public void setMappingsReplacesEverything() {
+        mapper.addMapping("/old", "fn:old");
+        final Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put("/new", "fn:new");
+        mappings.put("/new/{x}", "fn:{x}");
+        mapper.setMappings(mappings);
+        assertNull(map("/old"));
+        assertEquals("fn:new", map("/new/"));
+        assertEquals("fn:y", map("/new/y"));
+        assertEquals(mappings, mapper.getMappings());
+    }
+
+    @Test
+    public void anInvalidPatternAddsNothing() {
+        final Map<String, String> mappings = new LinkedHashMap<>();
+        mappings.put("/good", "fn:good");
+        mappings.put("/**/bad", "fn:bad");
+        try {
+            mapper.addMappings(mappings);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(map("/good"));
+        assertEquals(0, mapper.getMappings().size());
+    }
+
+    @Test
+    public void capturesThatAreNotAValidUriAreUnmapped() {
+        mapper.addMapping("/v1/{scheme}", "{scheme}:fn");
+        assertEquals("ok:fn", map("/v1/ok"));
+        assertNull(map("/v1/1a"));
+        assertNull(map("/v2/x"));
+    }
+
+    @Test
+    public void manyMappingsCanBeAddedOneAtATime() {
+        for (int i = 0; i < 20000; i++) mapper.addMapping("/f" + i + "/{x}", "fn:f" + i + "/{x}");
+        mapper.addMapping("/*/{x}", "fn:any/{x}");
+        assertEquals("fn:f12345/y", map("/f12345/y"));
+        assertEquals("fn:any/y", map("/g/y"));
+    }
+
+    private String map(String path) {
+        final URI uri = mapper.apply(URI.create(path));
+        return uri == null ? null : uri.toString();
+    }
+}
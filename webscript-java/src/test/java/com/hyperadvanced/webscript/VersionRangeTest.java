@@ -0,0 +1,77 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VersionRangeTest {
+
+    @Test
+    public void anExactVersionMatchesOnlyItself() {
+        assertRange("1.2.3", "1.2.3", "1.2.4");
+        assertTrue(VersionRange.parse("1.2.3").contains(Version.parse("1.2.3")));
+        assertFalse(VersionRange.parse("1.2.3").contains(Version.parse("1.2.4")));
+    }
+
+    @Test
+    public void partialVersionsMatchTheirLeadingComponents() {
+        assertRange("1", "1.0.0", "2.0.0");
+        assertRange("1.x", "1.0.0", "2.0.0");
+        assertRange("1.2", "1.2.0", "1.3.0");
+        assertRange("1.2.*", "1.2.0", "1.3.0");
+        assertSame(VersionRange.ANY, VersionRange.parse("x.x"));
+    }
+
+    @Test
+    public void caretAllowsChangesThatDoNotModifyTheFirstNonZeroComponent() {
+        assertRange("^1.2.3", "1.2.3", "2.0.0");
+        assertRange("^0.2.3", "0.2.3", "0.3.0");
+        assertRange("^0.0.3", "0.0.3", "0.0.4");
+    }
+
+    @Test
+    public void tildeAllowsPatchChanges() {
+        assertRange("~1.2.3", "1.2.3", "1.3.0");
+    }
+
+    @Test
+    public void comparatorsSetEitherBound() {
+        assertRange(">=1.2.0 <2.0.0", "1.2.0", "2.0.0");
+        assertRange(">1.2.0", "1.2.1", null);
+        assertRange("<=1.2.0", "0.0.0", "1.2.1");
+        assertRange("<2", "0.0.0", "2.0.0");
+    }
+
+    @Test
+    public void anythingMatchesEverything() {
+        for (String any : Arrays.asList("", " ", "*", "x")) assertSame(VersionRange.ANY, VersionRange.parse(any));
+        assertTrue(VersionRange.ANY.contains(Version.parse("123.4.5")));
+        assertNull(VersionRange.ANY.getUpper());
+        assertEquals(">=0.0.0", VersionRange.ANY.toString());
+    }
+
+    @Test
+    public void malformedRangesAreRejected() {
+        for (String range : Arrays.asList("^x", "~", ">=a", "=1.2", "1.2.3.4", ">=1 2")) {
+            try {
+                VersionRange.parse(range);
+                fail(range);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(expected.getMessage().contains(range));
+            }
+        }
+    }
+
+    private static void assertRange(String range, String lower, String upper) {
+        final VersionRange parsed = VersionRange.parse(range);
+        assertEquals(range, Version.parse(lower), parsed.getLower());
+        assertEquals(range, upper == null ? null : Version.parse(upper), parsed.getUpper());
+    }
+}
@@ -0,0 +1,51 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+
+public class VersionTest {
+
+    @Test
+    public void missingComponentsAreZero() {
+        assertEquals(new Version(1, 0, 0), Version.parse("1"));
+        assertEquals(new Version(1, 2, 0), Version.parse("1.2"));
+        assertEquals(new Version(1, 2, 3), Version.parse(" 1.2.3 "));
+        assertEquals("1.2.0", Version.parse("1.2").toString());
+        assertEquals(Version.parse("1.2").hashCode(), new Version(1, 2, 0).hashCode());
+    }
+
+    @Test
+    public void versionsAreOrderedNumerically() {
+        final List<Version> versions = Arrays.asList(Version.parse("1.10.0"), Version.parse("1.9.9"), Version.parse("0.0.1"),
+                Version.parse("10"), Version.parse("1.9.10"));
+        Collections.sort(versions);
+        assertEquals("[0.0.1, 1.9.9, 1.9.10, 1.10.0, 10.0.0]", versions.toString());
+        assertNotEquals(Version.parse("1.2.3"), Version.parse("1.2.4"));
+    }
+
+    @Test
+    public void theNextVersionsResetTheLowerComponents() {
+        final Version version = Version.parse("1.2.3");
+        assertEquals(Version.parse("2.0.0"), version.nextMajor());
+        assertEquals(Version.parse("1.3.0"), version.nextMinor());
+        assertEquals(Version.parse("1.2.4"), version.nextPatch());
+    }
+
+    @Test
+    public void malformedVersionsAreRejected() {
+        for (String version : Arrays.asList("", "1.2.3.4", "1.x", "a", "1..2", "-1", "1.2.")) {
+            try {
+                Version.parse(version);
+                fail(version);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.hyperadvanced.webscript;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class VersionedRegistryTest {
+
+    private final VersionedRegistry registry = new VersionedRegistry();
+
+    @Test
+    public void lookupsGetTheLatestVersionInTheirRange() {
+        register("1.0.0", "1.2.0", "1.10.1", "2.0.0", "0.3.0");
+        assertEquals("2.0.0", call("fn:echo"));
+        assertEquals("1.10.1", call("fn:echo:1"));
+        assertEquals("1.10.1", call("fn:echo:1.x"));
+        assertEquals("1.2.0", call("fn:echo:1.2"));
+        assertEquals("1.2.0", call("fn:echo:1.2.0"));
+        assertEquals("1.10.1", call("fn:echo:%5E1.2"));
+        assertEquals("1.2.0", call("fn:echo:~1.2.0"));
+        assertEquals("0.3.0", call("fn:echo:%5E0.3"));
+    }
+
+    @Test
+    public void nothingMatchesOutsideTheRegisteredVersions() {
+        register("1.2.0");
+        assertNull(registry.getFunction(URI.create("fn:echo:1.2.1")));
+        assertNull(registry.getFunction(URI.create("fn:echo:2")));
+        assertNull(registry.getFunction(URI.create("fn:echo:1.1")));
+        assertNull(registry.getFunction(URI.create("fn:other")));
+        assertNull(registry.getFunction(URI.create("other:echo")));
+    }
+
+    @Test
+    public void registeringAVersionAgainReplacesIt() {
+        final Function<String, String> replacement = input -> "replaced";
+        register("1.0.0");
+        registry.registerFunction(URI.create("fn:echo:1.0.0"), replacement);
+        assertSame(replacement, registry.getFunction(URI.create("fn:echo:1")));
+        assertEquals(1, registry.snapshot().versions("fn", "echo").size());
+    }
+
+    @Test
+    public void aSnapshotIsNotAffectedByLaterRegistrations() {
+        register("1.0.0");
+        final VersionedRegistry.Snapshot snapshot = registry.snapshot();
+        register("1.1.0");
+        assertEquals(Version.parse("1.0.0"), snapshot.latestVersion("fn", "echo", VersionRange.ANY));
+        assertEquals(Version.parse("1.1.0"), registry.snapshot().latestVersion("fn", "echo", VersionRange.ANY));
+        assertEquals("[1.0.0, 1.1.0]", registry.snapshot().versions("fn", "echo").toString());
+        assertEquals(0, snapshot.versions("fn", "other").size());
+    }
+
+    @Test
+    public void aBatchIsRegisteredWhole() {
+        final Map<URI, Function> functions = new HashMap<>();
+        functions.put(URI.create("fn:echo:1.0.0"), versioned("1.0.0"));
+        functions.put(URI.create("fn:echo"), versioned("unversioned"));
+        try {
+            registry.registerFunctions(functions);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertNull(registry.getFunction(URI.create("fn:echo")));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void rangesCanBeGivenDirectly() {
+        register("1.0.0", "1.5.0", "2.0.0");
+        assertEquals("1.5.0", registry.getFunction("fn", "echo", VersionRange.parse(">=1.0.0 <2.0.0")).apply("x"));
+        assertNull(registry.getFunction("fn", "echo", VersionRange.parse(">2.0.0")));
+    }
+
+    private void register(String... versions) {
+        final Map<URI, Function> functions = new HashMap<>();
+        for (String version : versions) {
+            functions.put(URI.create("fn:echo:" + version), versioned(version));
+        }
+        registry.registerFunctions(functions);
+    }
+
+    private static Function<String, String> versioned(String version) {
+        return input -> version;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String call(String identifier) {
+        return (String) registry.getFunction(URI.create(identifier)).apply("x");
+    }
+}